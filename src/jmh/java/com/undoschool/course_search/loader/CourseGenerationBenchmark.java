@@ -0,0 +1,33 @@
+package com.undoschool.course_search.loader;
+
+import com.github.javafaker.Faker;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Per-document cost of the Faker loader source, which bounds how fast a generated load can feed the bulk indexer.
+ */
+@State(Scope.Thread)
+public class CourseGenerationBenchmark {
+
+    private FakerCourseSource source;
+    private Faker faker;
+
+    @Setup
+    public void setUp() {
+        source = new FakerCourseSource(new CourseSearchProperties());
+        faker = new Faker(new Locale("en", "IND"), new Random(42));
+    }
+
+    @Benchmark
+    public CourseDocument generateCourse() {
+        return source.generateCourse(faker);
+    }
+}
@@ -0,0 +1,91 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.json.stream.JsonParser;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Offline wiring for the benchmarks: the same {@link JacksonJsonpMapper} setup as
+ * {@code ElasticsearchConfig}, and services backed by a client that is never called.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static JacksonJsonpMapper jsonpMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        return new JacksonJsonpMapper(mapper);
+    }
+
+    /**
+     * Like Spring Boot's {@code ObjectMapper}, which writes the HTTP responses.
+     */
+    static ObjectMapper objectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper;
+    }
+
+    static ElasticsearchCourseSearchBackend offlineElasticsearchBackend(CourseSearchProperties properties) {
+        return new ElasticsearchCourseSearchBackend(offlineClient(), new SearchCursorCodec(properties), properties,
+                new SearchMetrics(new SimpleMeterRegistry(), properties));
+    }
+
+    static StreamingCourseSearch offlineStreamingSearch(CourseSearchProperties properties) {
+        return new StreamingCourseSearch(null, offlineElasticsearchBackend(properties), null, offlineClient(),
+                new SearchCursorCodec(properties), new SearchMetrics(new SimpleMeterRegistry(), properties), objectMapper());
+    }
+
+    private static ElasticsearchClient offlineClient() {
+        RestClient unused = RestClient.builder(new HttpHost("localhost", 9200)).build();
+        return new ElasticsearchClient(new RestClientTransport(unused, jsonpMapper()));
+    }
+
+    /**
+     * Criteria as {@link CourseSearchService} hands them to a backend.
+     */
+    static CourseSearchCriteria normalize(CourseSearchCriteria criteria) {
+        return criteria.normalized(0, 10);
+    }
+
+    /**
+     * A recorded Elasticsearch response body from {@code src/jmh/resources/fixtures}.
+     */
+    static byte[] fixture(String name) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static <T> SearchResponse<T> parse(byte[] body, Class<T> documentClass, JacksonJsonpMapper mapper) {
+        JsonpDeserializer<SearchResponse<T>> deserializer =
+                SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(documentClass));
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(body))) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.javafaker.Faker;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+import com.undoschool.course_search.loader.FakerCourseSource;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The same filters with and without {@code q}: the scored request ({@code bool} with a {@code multi_match} and
+ * phrase rescore) against the filter-only one ({@code constant_score}, capped total, projected {@code _source}).
+ * Covers what runs in this process: building and serializing the request, decoding a page with full or
+ * projected sources, and answering both in memory. The cluster-side saving of not scoring is not measured here.
+ */
+@State(Scope.Benchmark)
+public class FilterOnlySearchBenchmark {
+
+    @Param({"10000"})
+    public int courses;
+
+    private ElasticsearchCourseSearchBackend backend;
+    private JacksonJsonpMapper mapper;
+    private CourseSearchProperties properties;
+    private InMemoryCourseIndex index;
+    private CourseSearchCriteria scored;
+    private CourseSearchCriteria filterOnly;
+    private byte[] fullPage;
+    private byte[] projectedPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        properties = new CourseSearchProperties();
+        backend = BenchmarkFixtures.offlineElasticsearchBackend(properties);
+        mapper = BenchmarkFixtures.jsonpMapper();
+
+        FakerCourseSource source = new FakerCourseSource(properties);
+        Faker faker = new Faker(new Locale("en", "IND"), new Random(42));
+        List<CourseDocument> documents = new ArrayList<>(courses);
+        for (int i = 0; i < courses; i++) {
+            documents.add(source.generateCourse(faker));
+        }
+        index = InMemoryCourseIndex.build(documents);
+
+        CourseSearchCriteria text = filters();
+        text.setQ("programming for kids");
+        text.setSort("relevance");
+        scored = BenchmarkFixtures.normalize(text);
+        filterOnly = BenchmarkFixtures.normalize(filters());
+
+        fullPage = BenchmarkFixtures.fixture("search-response.json");
+        projectedPage = project(fullPage, properties.getResults().getSourceIncludes());
+    }
+
+    @Benchmark
+    public byte[] scoredRequest() {
+        return serialize(scored);
+    }
+
+    @Benchmark
+    public byte[] filterOnlyRequest() {
+        return serialize(filterOnly);
+    }
+
+    @Benchmark
+    public SearchResponse<CourseSummary> fullSourcePage() {
+        return BenchmarkFixtures.parse(fullPage, CourseSummary.class, mapper);
+    }
+
+    @Benchmark
+    public SearchResponse<CourseSummary> projectedSourcePage() {
+        return BenchmarkFixtures.parse(projectedPage, CourseSummary.class, mapper);
+    }
+
+    @Benchmark
+    public InMemoryCourseIndex.Page scoredInMemory() {
+        return index.search(scored, null, false, properties);
+    }
+
+    @Benchmark
+    public InMemoryCourseIndex.Page filterOnlyInMemory() {
+        return index.search(filterOnly, null, false, properties);
+    }
+
+    private byte[] serialize(CourseSearchCriteria criteria) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            backend.buildPageRequest(criteria).serialize(generator, mapper);
+        }
+        return out.toByteArray();
+    }
+
+    private static CourseSearchCriteria filters() {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        criteria.setCategory("Programming");
+        criteria.setMinAge(8);
+        criteria.setMaxPrice(2000.0);
+        return criteria;
+    }
+
+    /**
+     * {@code body} with every hit's {@code _source} cut down to {@code fields}, as {@code _source.includes} returns it.
+     */
+    private static byte[] project(byte[] body, List<String> fields) throws IOException {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        JsonNode response = objectMapper.readTree(body);
+        for (JsonNode hit : response.path("hits").path("hits")) {
+            ((ObjectNode) hit.get("_source")).retain(fields);
+        }
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,78 @@
+package com.undoschool.course_search.service;
+
+import com.github.javafaker.Faker;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.loader.FakerCourseSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Query cost of the in-memory backend over generated courses: a fuzzy full-text query, a filter-only
+ * browse sorted by date, and a faceted query.
+ */
+@State(Scope.Benchmark)
+public class InMemorySearchBenchmark {
+
+    @Param({"10000"})
+    public int courses;
+
+    private InMemoryCourseIndex index;
+    private CourseSearchProperties properties;
+    private CourseSearchCriteria textQuery;
+    private CourseSearchCriteria filterQuery;
+    private CourseSearchCriteria facetQuery;
+
+    @Setup
+    public void setUp() {
+        FakerCourseSource source = new FakerCourseSource(new CourseSearchProperties());
+        Faker faker = new Faker(new Locale("en", "IND"), new Random(42));
+        List<CourseDocument> documents = new ArrayList<>(courses);
+        for (int i = 0; i < courses; i++) {
+            documents.add(source.generateCourse(faker));
+        }
+        index = InMemoryCourseIndex.build(documents);
+        properties = new CourseSearchProperties();
+
+        CourseSearchCriteria text = new CourseSearchCriteria();
+        text.setQ("introducton to biology");
+        text.setSort("relevance");
+        textQuery = BenchmarkFixtures.normalize(text);
+
+        CourseSearchCriteria filter = new CourseSearchCriteria();
+        filter.setCategory("Programming");
+        filter.setMinAge(8);
+        filter.setMaxPrice(2000.0);
+        filterQuery = BenchmarkFixtures.normalize(filter);
+
+        CourseSearchCriteria faceted = new CourseSearchCriteria();
+        faceted.setQ("history");
+        faceted.setType("WORKSHOP");
+        faceted.setFacets(true);
+        facetQuery = BenchmarkFixtures.normalize(faceted);
+    }
+
+    @Benchmark
+    public InMemoryCourseIndex.Page fuzzyTextQuery() {
+        return index.search(textQuery, null, false, properties);
+    }
+
+    @Benchmark
+    public InMemoryCourseIndex.Page filteredBrowse() {
+        return index.search(filterQuery, null, false, properties);
+    }
+
+    @Benchmark
+    public InMemoryCourseIndex.Page facetedQuery() {
+        return index.search(facetQuery, null, true, properties);
+    }
+}
@@ -0,0 +1,101 @@
+package com.undoschool.course_search.service;
+
+import com.github.javafaker.Faker;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.loader.FakerCourseSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Per-query cost of the text matching settings on the in-memory backend, the offline counterpart of
+ * {@code RelevanceTests}: {@code legacy} expands every term fuzzily over title and description as before,
+ * {@code tuned} matches exact and partial words first and only falls back to fuzzy expansion for a typo that
+ * matches nothing. Compare e.g. {@code -Djmh.args="Relevance -p relevance=legacy,tuned"}.
+ */
+@State(Scope.Benchmark)
+public class RelevanceBenchmark {
+
+    @Param({"10000"})
+    public int courses;
+
+    /**
+     * Distinct extra words spread over the descriptions. Faker's lorem text has a few hundred, far fewer than a
+     * real catalogue, and fuzzy expansion has to consider every term of a field.
+     */
+    @Param({"50000"})
+    public int vocabulary;
+
+    @Param({"legacy", "tuned"})
+    public String relevance;
+
+    private InMemoryCourseIndex index;
+    private CourseSearchProperties properties;
+    private CourseSearchCriteria wordQuery;
+    private CourseSearchCriteria partialWordQuery;
+    private CourseSearchCriteria typoQuery;
+
+    @Setup
+    public void setUp() {
+        FakerCourseSource source = new FakerCourseSource(new CourseSearchProperties());
+        Faker faker = new Faker(new Locale("en", "IND"), new Random(42));
+        Random random = new Random(42);
+        String[] words = new String[vocabulary];
+        for (int i = 0; i < vocabulary; i++) {
+            words[i] = faker.lorem().characters(4 + random.nextInt(7), false).toLowerCase(Locale.ROOT);
+        }
+        List<CourseDocument> documents = new ArrayList<>(courses);
+        for (int i = 0; i < courses; i++) {
+            CourseDocument course = source.generateCourse(faker);
+            StringBuilder description = new StringBuilder(course.getDescription());
+            for (int w = 0; w < 8; w++) {
+                description.append(' ').append(words[random.nextInt(vocabulary)]);
+            }
+            course.setDescription(description.toString());
+            documents.add(course);
+        }
+        index = InMemoryCourseIndex.build(documents);
+        properties = new CourseSearchProperties();
+        if (relevance.equals("legacy")) {
+            properties.getRelevance().setFuzziness("always");
+            properties.getRelevance().setTitleBoost(1);
+            properties.getRelevance().setPrefixBoost(0);
+        }
+
+        // Faker course titles are a subject and a course number, e.g. "Forensic Science 301"
+        wordQuery = textQuery("forensic science");
+        partialWordQuery = textQuery("foren sci");
+        typoQuery = textQuery("forensc sceince");
+    }
+
+    private static CourseSearchCriteria textQuery(String q) {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        criteria.setQ(q);
+        criteria.setSort("relevance");
+        return BenchmarkFixtures.normalize(criteria);
+    }
+
+    @Benchmark
+    public InMemoryCourseIndex.Page wordQuery() {
+        return index.search(wordQuery, null, false, properties);
+    }
+
+    @Benchmark
+    public InMemoryCourseIndex.Page partialWordQuery() {
+        return index.search(partialWordQuery, null, false, properties);
+    }
+
+    @Benchmark
+    public InMemoryCourseIndex.Page typoQuery() {
+        return index.search(typoQuery, null, false, properties);
+    }
+}
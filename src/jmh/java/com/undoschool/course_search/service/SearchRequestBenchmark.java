@@ -0,0 +1,74 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * Cost of turning {@link CourseSearchCriteria} into the {@link SearchRequest} that goes over the wire:
+ * normalization, the bool query and sort, and JSON serialization of the request body.
+ */
+@State(Scope.Thread)
+public class SearchRequestBenchmark {
+
+    private ElasticsearchCourseSearchBackend backend;
+    private JacksonJsonpMapper mapper;
+    private CourseSearchCriteria[] criteria;
+    private SearchRequest[] requests;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        backend = BenchmarkFixtures.offlineElasticsearchBackend(new CourseSearchProperties());
+        mapper = BenchmarkFixtures.jsonpMapper();
+        criteria = new CourseSearchCriteria[]{
+                criteria(null, null, null, null, null, null),
+                criteria("Machine Learning", null, null, null, null, null),
+                criteria("python", "Programming", "WORKSHOP", 8, 2000.0, "price:asc"),
+                criteria(null, "Design", null, 10, 500.0, "upcoming"),
+                criteria("spanish for kids", "Language", "ONLINE", 6, null, "relevance"),
+        };
+        criteria[3].setStartDate(LocalDateTime.of(2025, 9, 1, 0, 0));
+        criteria[4].setFacets(true);
+        requests = new SearchRequest[criteria.length];
+        for (int i = 0; i < criteria.length; i++) {
+            requests[i] = backend.buildPageRequest(BenchmarkFixtures.normalize(criteria[i]));
+        }
+    }
+
+    @Benchmark
+    public SearchRequest buildPageRequest() {
+        CourseSearchCriteria raw = criteria[next++ % criteria.length];
+        return backend.buildPageRequest(BenchmarkFixtures.normalize(raw));
+    }
+
+    @Benchmark
+    public byte[] serializePageRequest() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            requests[next++ % requests.length].serialize(generator, mapper);
+        }
+        return out.toByteArray();
+    }
+
+    private static CourseSearchCriteria criteria(String q, String category, String type, Integer minAge,
+                                                 Double maxPrice, String sort) {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        criteria.setQ(q);
+        criteria.setCategory(category);
+        criteria.setType(type);
+        criteria.setMinAge(minAge);
+        criteria.setMaxPrice(maxPrice);
+        criteria.setSort(sort);
+        return criteria;
+    }
+}
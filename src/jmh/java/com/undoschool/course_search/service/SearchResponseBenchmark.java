@@ -0,0 +1,62 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+
+/**
+ * Deserialization of recorded {@code _search} responses into {@code SearchResponse<CourseSummary>} (including
+ * the {@code @JsonFormat} {@code nextSessionDate} path) and mapping them to the API result, with full
+ * {@link CourseDocument} hits as the baseline.
+ */
+@State(Scope.Thread)
+public class SearchResponseBenchmark {
+
+    private JacksonJsonpMapper mapper;
+    private ElasticsearchCourseSearchBackend backend;
+    private CourseSearchCriteria criteria;
+    private CourseSearchCriteria facetedCriteria;
+    private byte[] page;
+    private byte[] facetedPage;
+
+    @Setup
+    public void setUp() {
+        mapper = BenchmarkFixtures.jsonpMapper();
+        backend = BenchmarkFixtures.offlineElasticsearchBackend(new CourseSearchProperties());
+        criteria = BenchmarkFixtures.normalize(new CourseSearchCriteria());
+        CourseSearchCriteria faceted = new CourseSearchCriteria();
+        faceted.setFacets(true);
+        facetedCriteria = BenchmarkFixtures.normalize(faceted);
+        page = BenchmarkFixtures.fixture("search-response.json");
+        facetedPage = BenchmarkFixtures.fixture("search-response-facets.json");
+    }
+
+    @Benchmark
+    public SearchResponse<CourseDocument> deserializeFullDocuments() {
+        return BenchmarkFixtures.parse(page, CourseDocument.class, mapper);
+    }
+
+    @Benchmark
+    public SearchResponse<CourseSummary> deserializePage() {
+        return BenchmarkFixtures.parse(page, CourseSummary.class, mapper);
+    }
+
+    @Benchmark
+    public Map<String, Object> deserializeAndMapPage() {
+        return backend.toResult(criteria, BenchmarkFixtures.parse(page, CourseSummary.class, mapper), null);
+    }
+
+    @Benchmark
+    public Map<String, Object> deserializeAndMapFacetedPage() {
+        return backend.toResult(facetedCriteria, BenchmarkFixtures.parse(facetedPage, CourseSummary.class, mapper), null);
+    }
+}
@@ -0,0 +1,59 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * A recorded {@code _search} response turned into the HTTP response body, per request: through
+ * {@code SearchResponse}, the result map and Jackson ({@code /api/search}) versus copied hit by hit with
+ * {@link StreamingCourseSearch} ({@code /api/search/stream}). Run with {@code -prof gc} (the default) to
+ * compare allocation per request.
+ */
+@State(Scope.Thread)
+public class StreamingSearchBenchmark {
+
+    private JacksonJsonpMapper jsonpMapper;
+    private ObjectMapper objectMapper;
+    private ElasticsearchCourseSearchBackend backend;
+    private StreamingCourseSearch streaming;
+    private CourseSearchCriteria criteria;
+    private byte[] page;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() {
+        CourseSearchProperties properties = new CourseSearchProperties();
+        jsonpMapper = BenchmarkFixtures.jsonpMapper();
+        objectMapper = BenchmarkFixtures.objectMapper();
+        backend = BenchmarkFixtures.offlineElasticsearchBackend(properties);
+        streaming = BenchmarkFixtures.offlineStreamingSearch(properties);
+        criteria = BenchmarkFixtures.normalize(new CourseSearchCriteria());
+        page = BenchmarkFixtures.fixture("search-response.json");
+        out = new ByteArrayOutputStream(16 * 1024);
+    }
+
+    @Benchmark
+    public int mapAndSerializePage() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, backend.toResult(criteria, BenchmarkFixtures.parse(page, CourseSummary.class, jsonpMapper), null));
+        return out.size();
+    }
+
+    @Benchmark
+    public int streamPage() throws IOException {
+        out.reset();
+        streaming.writePage(criteria, new ByteArrayInputStream(page), out, System.nanoTime(), true);
+        return out.size();
+    }
+}
@@ -0,0 +1,56 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.undoschool.course_search.dto.CourseSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Both suggestion paths: mapping a recorded completion-suggester response, and an in-memory trie lookup.
+ */
+@State(Scope.Thread)
+public class SuggestBenchmark {
+
+    private static final String[] PREFIXES = {"a", "ad", "intro", "modern m", "foundations of t", "zz"};
+
+    private JacksonJsonpMapper mapper;
+    private byte[] response;
+    private SuggestionTrie trie;
+    private String[] out;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        mapper = BenchmarkFixtures.jsonpMapper();
+        response = BenchmarkFixtures.fixture("suggest-response.json");
+
+        String[] words = {"introduction to", "advanced", "applied", "foundations of", "modern"};
+        String[] subjects = {"algorithms", "statistics", "branding", "typography", "accounting", "spanish",
+                "databases", "negotiation", "machine learning", "illustration"};
+        Map<String, Integer> weights = new HashMap<>();
+        for (int i = 0; i < words.length; i++) {
+            for (int j = 0; j < subjects.length; j++) {
+                weights.put(words[i] + " " + subjects[j], 1 + (i * 7 + j * 3) % 11);
+                weights.merge(subjects[j], 1, Integer::sum);
+            }
+        }
+        trie = SuggestionTrie.build(weights, 10);
+        out = new String[10];
+    }
+
+    @Benchmark
+    public List<String> mapCompletionResponse() {
+        return CourseSuggestService.toSuggestions(BenchmarkFixtures.parse(response, CourseSummary.class, mapper));
+    }
+
+    @Benchmark
+    public int trieLookup() {
+        return trie.lookup(PREFIXES[next++ % PREFIXES.length], out);
+    }
+}
@@ -0,0 +1,205 @@
+package com.undoschool.course_search.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.undoschool.course_search.CourseSearchApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open-loop load test of {@code /api/search} and {@code /api/search/suggest}; see {@link Workload} for the
+ * traffic and {@link OpenLoopDriver} for how it is measured. Options are {@code name=value} (or
+ * {@code --name=value}):
+ * <ul>
+ *     <li>{@code target}: {@code stub} (default) starts the application in-process against a
+ *     {@link StubElasticsearch}; {@code memory} starts it with {@code backend.primary=memory}; a URL such as
+ *     {@code http://localhost:8080} drives an application that is already running.</li>
+ *     <li>{@code rate} (operations/s, default 100), {@code warmup} (10s), {@code duration} (30s), {@code seed} (42),
+ *     {@code search-share} (0.7, the rest is suggest), {@code deep-page-share} (0.05), {@code zipf-exponent} (1.1).</li>
+ *     <li>{@code stub-latency} (5ms median) and {@code stub-jitter} (0.5) shape the stub's delays.</li>
+ *     <li>{@code app.<property>} is passed to an in-process application, e.g.
+ *     {@code app.course-search.cache.enabled=false}.</li>
+ *     <li>{@code out} (default {@code target/loadtest/result.json}) receives the report.</li>
+ *     <li>{@code baseline=<report.json>} compares the run with an earlier report and exits with 1 if it
+ *     regressed by more than {@code max-regression} (0.10); {@code diff=<baseline.json>,<current.json>} only
+ *     compares two existing reports.</li>
+ * </ul>
+ */
+@Slf4j
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        double maxRegression = Double.parseDouble(options.getOrDefault("max-regression", "0.10"));
+
+        if (options.containsKey("diff")) {
+            String[] files = options.get("diff").split(",");
+            if (files.length != 2) {
+                throw new IllegalArgumentException("diff takes <baseline.json>,<current.json>");
+            }
+            LoadTestReport baseline = objectMapper.readValue(new File(files[0]), LoadTestReport.class);
+            LoadTestReport current = objectMapper.readValue(new File(files[1]), LoadTestReport.class);
+            System.exit(LoadTestReport.compare(baseline, current, maxRegression, System.out) ? 1 : 0);
+        }
+
+        String target = options.getOrDefault("target", "stub");
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        Duration warmup = DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(options.getOrDefault("duration", "30s"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Workload workload = new Workload(seed,
+                Double.parseDouble(options.getOrDefault("search-share", "0.7")),
+                Double.parseDouble(options.getOrDefault("deep-page-share", "0.05")),
+                Double.parseDouble(options.getOrDefault("zipf-exponent", "1.1")));
+
+        LoadTestReport report;
+        try (SystemUnderTest system = SystemUnderTest.start(target, options, seed)) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            OpenLoopDriver.Target send = operation -> client.send(
+                    HttpRequest.newBuilder(URI.create(system.baseUri() + operation.path())).timeout(Duration.ofSeconds(30)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+            system.awaitReady(send);
+
+            log.info("Running {}/s against {} for {} after {} of warmup", rate, target, duration, warmup);
+            String startedAt = Instant.now().toString();
+            OpenLoopDriver.Run run = new OpenLoopDriver(workload, send, rate).run(warmup, duration);
+            report = LoadTestReport.of(target, rate, warmup, startedAt, seed, run);
+        }
+
+        File out = new File(options.getOrDefault("out", "target/loadtest/result.json"));
+        if (out.getParentFile() != null) {
+            out.getParentFile().mkdirs();
+        }
+        objectMapper.writeValue(out, report);
+        report.print(System.out);
+        System.out.println("Report written to " + out);
+
+        if (options.containsKey("baseline")) {
+            LoadTestReport baseline = objectMapper.readValue(new File(options.get("baseline")), LoadTestReport.class);
+            if (LoadTestReport.compare(baseline, report, maxRegression, System.out)) {
+                System.exit(1);
+            }
+        }
+        System.exit(0); // the in-process application may leave non-daemon threads behind
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int equals = option.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected name=value but got '" + arg + "'");
+            }
+            options.put(option.substring(0, equals), option.substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * The application being measured, started in-process unless {@code target} is a URL.
+     */
+    private static final class SystemUnderTest implements AutoCloseable {
+
+        private final String baseUri;
+        private final StubElasticsearch stub;
+        private final ConfigurableApplicationContext application;
+
+        private SystemUnderTest(String baseUri, StubElasticsearch stub, ConfigurableApplicationContext application) {
+            this.baseUri = baseUri;
+            this.stub = stub;
+            this.application = application;
+        }
+
+        static SystemUnderTest start(String target, Map<String, String> options, long seed) throws IOException {
+            if (target.startsWith("http://") || target.startsWith("https://")) {
+                return new SystemUnderTest(target.replaceAll("/+$", ""), null, null);
+            }
+            List<String> arguments = new ArrayList<>(List.of(
+                    "--server.port=0",
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.undoschool=WARN"));
+            StubElasticsearch stub = null;
+            switch (target) {
+                case "stub" -> {
+                    stub = new StubElasticsearch(
+                            DurationStyle.detectAndParse(options.getOrDefault("stub-latency", "5ms")),
+                            Double.parseDouble(options.getOrDefault("stub-jitter", "0.5")), seed);
+                    arguments.add("--spring.elasticsearch.uris=" + stub.uri());
+                    arguments.add("--course-search.loader.reindex-on-startup=false"); // the stub serves fixed data
+                    arguments.add("--course-search.backend.fallback=false");
+                }
+                case "memory" -> arguments.add("--course-search.backend.primary=memory");
+                default -> throw new IllegalArgumentException("target must be stub, memory or a URL, not '" + target + "'");
+            }
+            options.forEach((name, value) -> {
+                if (name.startsWith("app.")) {
+                    arguments.add("--" + name.substring("app.".length()) + "=" + value);
+                }
+            });
+
+            ConfigurableApplicationContext application = new SpringApplicationBuilder(CourseSearchApplication.class)
+                    .run(arguments.toArray(String[]::new));
+            String port = application.getEnvironment().getProperty("local.server.port");
+            return new SystemUnderTest("http://localhost:" + port, stub, application);
+        }
+
+        String baseUri() {
+            return baseUri;
+        }
+
+        /**
+         * Waits up to a minute for a search to succeed, e.g. while the in-memory backend loads.
+         */
+        void awaitReady(OpenLoopDriver.Target send) throws Exception {
+            Workload.Operation probe = new Workload.Operation(Workload.Kind.SEARCH, "/api/search?size=1");
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+            while (true) {
+                try {
+                    if (send.send(probe) == 200) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    log.debug("Not ready yet: {}", e.getMessage());
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(baseUri + " did not answer searches within a minute");
+                }
+                TimeUnit.MILLISECONDS.sleep(500);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (application != null) {
+                application.close();
+            }
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.undoschool.course_search.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Result of one load test run as written to JSON. Latencies are in milliseconds; {@code histogram} is the
+ * full coordinated-omission-corrected latency histogram (nanoseconds, HdrHistogram compressed encoding,
+ * Base64) for analysis beyond the listed percentiles.
+ */
+record LoadTestReport(String target, double rate, String warmup, String duration, long seed, String startedAt,
+                      long scheduled, double achievedRate, Map<String, OperationReport> operations) {
+
+    record OperationReport(long count, long errors, Map<String, Long> statuses, Percentiles latencyMs,
+                           Percentiles serviceTimeMs, String histogram) {
+    }
+
+    record Percentiles(double p50, double p90, double p99, double p999, double max, double mean) {
+
+        static Percentiles of(Histogram histogram) {
+            return new Percentiles(millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()), millis(histogram.getMean()));
+        }
+
+        private static double millis(double nanos) {
+            return Math.round(nanos / 1_000) / 1_000.0; // microsecond resolution
+        }
+    }
+
+    static LoadTestReport of(String target, double rate, Duration warmup, String startedAt, long seed, OpenLoopDriver.Run run) {
+        Map<String, OperationReport> operations = new TreeMap<>();
+        long completed = 0;
+        for (Map.Entry<Workload.Kind, OpenLoopDriver.Stats> entry : run.stats().entrySet()) {
+            OpenLoopDriver.Stats stats = entry.getValue();
+            Map<String, Long> statuses = new TreeMap<>();
+            long errors = 0;
+            for (Map.Entry<Integer, LongAdder> status : stats.statuses.entrySet()) {
+                long count = status.getValue().sum();
+                statuses.put(status.getKey() < 0 ? "no-response" : status.getKey().toString(), count);
+                if (status.getKey() < 200 || status.getKey() >= 300) {
+                    errors += count;
+                }
+            }
+            long count = stats.latency.getTotalCount();
+            completed += count;
+            operations.put(entry.getKey().name().toLowerCase(Locale.ROOT), new OperationReport(count, errors, statuses,
+                    Percentiles.of(stats.latency), Percentiles.of(stats.serviceTime), encode(stats.latency)));
+        }
+        double achievedRate = completed / (run.measured().toNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+        return new LoadTestReport(target, rate, warmup.toString(), run.measured().toString(), seed, startedAt,
+                run.scheduled(), Math.round(achievedRate * 10) / 10.0, operations);
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%s at %.1f/s for %s (achieved %.1f/s)%n", target, rate, duration, achievedRate);
+        out.printf(Locale.ROOT, "%-8s %8s %7s %9s %9s %9s %9s %9s%n", "", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        operations.forEach((name, op) -> out.printf(Locale.ROOT, "%-8s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, op.count(), op.errors(), op.latencyMs().p50(), op.latencyMs().p90(), op.latencyMs().p99(),
+                op.latencyMs().p999(), op.latencyMs().max()));
+    }
+
+    /**
+     * Prints how {@code current} differs from {@code baseline} and returns whether it regressed: a p50, p90 or
+     * p99 latency more than {@code maxRegression} (a fraction) above the baseline, or a higher error rate.
+     */
+    static boolean compare(LoadTestReport baseline, LoadTestReport current, double maxRegression, PrintStream out) {
+        boolean regressed = false;
+        out.printf(Locale.ROOT, "%-8s %-6s %10s %10s %8s%n", "", "", "baseline", "current", "change");
+        for (Map.Entry<String, OperationReport> entry : current.operations().entrySet()) {
+            OperationReport before = baseline.operations().get(entry.getKey());
+            OperationReport after = entry.getValue();
+            if (before == null || before.count() == 0 || after.count() == 0) {
+                out.printf("%-8s not in both runs%n", entry.getKey());
+                continue;
+            }
+            double[][] pairs = {
+                    {before.latencyMs().p50(), after.latencyMs().p50()},
+                    {before.latencyMs().p90(), after.latencyMs().p90()},
+                    {before.latencyMs().p99(), after.latencyMs().p99()},
+                    {before.latencyMs().p999(), after.latencyMs().p999()},
+            };
+            String[] labels = {"p50", "p90", "p99", "p99.9"};
+            for (int i = 0; i < pairs.length; i++) {
+                double change = pairs[i][0] == 0 ? 0 : pairs[i][1] / pairs[i][0] - 1;
+                boolean gated = i < 3 && change > maxRegression; // p99.9 is reported but too noisy to gate on
+                regressed |= gated;
+                out.printf(Locale.ROOT, "%-8s %-6s %10.2f %10.2f %+7.1f%%%s%n", entry.getKey(), labels[i],
+                        pairs[i][0], pairs[i][1], change * 100, gated ? "  REGRESSION" : "");
+            }
+            double errorsBefore = before.errors() / (double) before.count();
+            double errorsAfter = after.errors() / (double) after.count();
+            boolean moreErrors = errorsAfter > errorsBefore + 0.001;
+            regressed |= moreErrors;
+            out.printf(Locale.ROOT, "%-8s %-6s %9.2f%% %9.2f%%%s%n", entry.getKey(), "errors",
+                    errorsBefore * 100, errorsAfter * 100, moreErrors ? "           REGRESSION" : "");
+        }
+        return regressed;
+    }
+}
@@ -0,0 +1,133 @@
+package com.undoschool.course_search.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends {@link Workload} operations at a fixed arrival rate, whether or not earlier ones have completed (an
+ * open loop, like independent users). Each operation runs on its own virtual thread where the JVM has them
+ * (Java 21+), otherwise on a growing pool of platform threads.
+ * <p>
+ * Latency is measured from the time an operation was scheduled to start, not from when it was actually sent,
+ * so time spent queued behind a stalled server or a late scheduler is counted (coordinated omission
+ * correction); {@code serviceTime} is measured from the send and shows what a closed-loop tool would report.
+ */
+@Slf4j
+final class OpenLoopDriver {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Sends one operation and returns its HTTP status.
+     */
+    @FunctionalInterface
+    interface Target {
+        int send(Workload.Operation operation) throws Exception;
+    }
+
+    /**
+     * Measurements of one operation kind.
+     */
+    static final class Stats {
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>(); // -1: no response
+    }
+
+    record Run(Map<Workload.Kind, Stats> stats, long scheduled, Duration measured) {
+    }
+
+    private final Workload workload;
+    private final Target target;
+    private final double rate;
+
+    OpenLoopDriver(Workload workload, Target target, double rate) {
+        this.workload = workload;
+        this.target = target;
+        this.rate = rate;
+    }
+
+    /**
+     * Runs {@code warmup} unmeasured, then {@code duration} measured, and waits for outstanding operations.
+     */
+    Run run(Duration warmup, Duration duration) throws InterruptedException {
+        Map<Workload.Kind, Stats> stats = new EnumMap<>(Workload.Kind.class);
+        for (Workload.Kind kind : Workload.Kind.values()) {
+            stats.put(kind, new Stats());
+        }
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        ExecutorService executor = newRequestExecutor();
+        long scheduled = 0;
+        try {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Workload.Operation operation = workload.next();
+                boolean measured = intended >= measureFrom;
+                scheduled += measured ? 1 : 0;
+                executor.execute(() -> send(operation, intended, measured ? stats.get(operation.kind()) : null));
+            }
+        } finally {
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Operations still outstanding a minute after the run; they are not counted");
+            }
+        }
+        return new Run(stats, scheduled, duration);
+    }
+
+    private void send(Workload.Operation operation, long intended, Stats stats) {
+        long sent = System.nanoTime();
+        int status;
+        try {
+            status = target.send(operation);
+        } catch (Exception e) {
+            status = -1;
+            log.debug("{} {} failed: {}", operation.kind(), operation.path(), e.toString());
+        }
+        long done = System.nanoTime();
+        if (stats != null) {
+            stats.latency.recordValue(Math.min(HIGHEST_TRACKABLE_NANOS, done - intended));
+            stats.serviceTime.recordValue(Math.min(HIGHEST_TRACKABLE_NANOS, done - sent));
+            stats.statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * One virtual thread per task on Java 21+; looked up reflectively because the build targets Java 17.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.info("Virtual threads are not available on Java {}, sending from platform threads",
+                    Runtime.version().feature());
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "load-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.undoschool.course_search.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP stand-in for an Elasticsearch node that answers every search with a recorded response (the benchmark
+ * fixtures) after a canned, log-normally distributed delay. The application under test talks to it through
+ * its real client and transport, so request building, HTTP and response mapping are all exercised; only the
+ * work inside Elasticsearch is replaced by the delay.
+ * <p>
+ * {@code _search} requests get {@code suggest-response.json} when they ask for suggestions,
+ * {@code search-response-facets.json} when they carry aggregations and {@code search-response.json}
+ * otherwise. Point-in-time open/close and the cluster health check are acknowledged; anything else is 404.
+ */
+final class StubElasticsearch implements AutoCloseable {
+
+    private static final String HEALTH = "{\"cluster_name\":\"stub\",\"status\":\"green\",\"timed_out\":false}";
+    private static final String ROOT = "{\"name\":\"stub\",\"cluster_name\":\"stub\",\"version\":{\"number\":\"8.11.3\"},"
+            + "\"tagline\":\"You Know, for Search\"}";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long medianNanos;
+    private final double jitter;
+    private final Random random;
+    private final byte[] search = fixture("search-response.json");
+    private final byte[] searchWithFacets = fixture("search-response-facets.json");
+    private final byte[] suggest = fixture("suggest-response.json");
+
+    /**
+     * @param medianLatency the median delay before each search is answered
+     * @param jitter        standard deviation of the delay's logarithm; 0 for a constant delay
+     */
+    StubElasticsearch(Duration medianLatency, double jitter, long seed) throws IOException {
+        this.medianNanos = medianLatency.toNanos();
+        this.jitter = jitter;
+        this.random = new Random(seed);
+        this.executor = OpenLoopDriver.newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String uri() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String body = readBody(exchange);
+            if (path.endsWith("/_search")) {
+                delay();
+                respond(exchange, 200, body.contains("\"suggest\"") ? suggest
+                        : body.contains("\"aggregations\"") ? searchWithFacets : search);
+            } else if (path.endsWith("/_pit")) {
+                respond(exchange, 200, exchange.getRequestMethod().equals("DELETE")
+                        ? bytes("{\"succeeded\":true,\"num_freed\":1}") : bytes("{\"id\":\"stub-pit\"}"));
+            } else if (path.startsWith("/_cluster/health")) {
+                respond(exchange, 200, bytes(HEALTH));
+            } else if (path.equals("/")) {
+                respond(exchange, 200, bytes(ROOT));
+            } else {
+                respond(exchange, 404, bytes("{\"error\":{\"type\":\"stub_exception\",\"reason\":\"not stubbed: "
+                        + path + "\"},\"status\":404}"));
+            }
+        }
+    }
+
+    private void delay() {
+        double gaussian;
+        synchronized (random) {
+            gaussian = random.nextGaussian();
+        }
+        long nanos = (long) (medianNanos * Math.exp(jitter * gaussian));
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in); // course-search.transport.compression
+        }
+        try (InputStream body = in) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("X-Elastic-Product", "Elasticsearch"); // checked by the Java client
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] fixture(String name) {
+        try (InputStream in = StubElasticsearch.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,197 @@
+package com.undoschool.course_search.loadtest;
+
+import com.github.javafaker.Faker;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Deterministic (per seed) stream of requests resembling real traffic:
+ * <ul>
+ *     <li>searches filter on categories drawn from a Zipf distribution, so a few categories get most of the
+ *     traffic, and half of them carry one or two keywords drawn the same way from a vocabulary of Faker course
+ *     titles;</li>
+ *     <li>suggest requests come in typing sessions: the growing prefixes of one word, as sent per keystroke;</li>
+ *     <li>most searches read the first page, and a small tail pages deep enough to go past
+ *     {@code paging.max-from-depth}.</li>
+ * </ul>
+ * Not thread-safe; the driver draws every operation from its scheduling thread.
+ */
+final class Workload {
+
+    enum Kind {
+        SEARCH, SUGGEST
+    }
+
+    record Operation(Kind kind, String path) {
+    }
+
+    // FakerCourseSource's values, in the (arbitrary) popularity order the Zipf ranks assign
+    private static final String[] CATEGORIES = {"Programming", "Data Science", "Design", "Business", "Marketing", "Language"};
+    private static final String[] TYPES = {"LECTURE", "WORKSHOP", "SEMINAR", "ONLINE"};
+    private static final Set<String> STOP_WORDS = Set.of("of", "in", "and", "the", "for", "to", "a");
+    private static final int VOCABULARY_TITLES = 2000;
+
+    private final Random random;
+    private final double searchShare;
+    private final double deepPageShare;
+    private final Zipf categories;
+    private final Zipf words;
+    private final String[] vocabulary;
+    private final Deque<String> typing = new ArrayDeque<>();
+
+    Workload(long seed, double searchShare, double deepPageShare, double zipfExponent) {
+        this.random = new Random(seed);
+        this.searchShare = searchShare;
+        this.deepPageShare = deepPageShare;
+        this.vocabulary = vocabulary(seed);
+        this.categories = new Zipf(CATEGORIES.length, zipfExponent);
+        this.words = new Zipf(vocabulary.length, zipfExponent);
+    }
+
+    Operation next() {
+        if (!typing.isEmpty() || random.nextDouble() >= searchShare) {
+            return new Operation(Kind.SUGGEST, "/api/search/suggest?q=" + encode(nextPrefix()));
+        }
+        return new Operation(Kind.SEARCH, "/api/search" + toQuery(nextCriteria()));
+    }
+
+    private String nextPrefix() {
+        if (typing.isEmpty()) {
+            String word = vocabulary[words.sample(random)];
+            // most people pick a suggestion after a few keystrokes instead of typing the whole word
+            int typed = Math.min(word.length(), 1 + (int) (-Math.log(1 - random.nextDouble()) * 3));
+            for (int length = 1; length <= typed; length++) {
+                typing.add(word.substring(0, length));
+            }
+        }
+        return typing.poll();
+    }
+
+    CourseSearchCriteria nextCriteria() {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        if (random.nextDouble() < 0.5) {
+            String q = vocabulary[words.sample(random)];
+            if (random.nextDouble() < 0.3) {
+                q += " " + vocabulary[words.sample(random)];
+            }
+            criteria.setQ(q);
+        }
+        if (random.nextDouble() < 0.6) {
+            criteria.setCategory(CATEGORIES[categories.sample(random)]);
+        }
+        if (random.nextDouble() < 0.3) {
+            criteria.setType(TYPES[random.nextInt(TYPES.length)]);
+        }
+        if (random.nextDouble() < 0.2) {
+            double minPrice = 500 + random.nextInt(16) * 100;
+            criteria.setMinPrice(minPrice);
+            criteria.setMaxPrice(minPrice + 500 + random.nextInt(20) * 100);
+        }
+        if (random.nextDouble() < 0.15) {
+            criteria.setMinAge(14 + random.nextInt(4));
+        }
+
+        double sort = random.nextDouble();
+        if (sort < 0.15) {
+            criteria.setSort("price:asc");
+        } else if (sort < 0.25) {
+            criteria.setSort("price:desc");
+        }
+
+        double size = random.nextDouble();
+        criteria.setSize(size < 0.8 ? 10 : size < 0.95 ? 20 : 50);
+        double paging = random.nextDouble();
+        if (paging < deepPageShare) {
+            // exponential tail with a mean of 40 pages; at size 10, one in ten goes past a depth of 1000
+            criteria.setPage(Math.min(500, 5 + (int) (-Math.log(1 - random.nextDouble()) * 40)));
+        } else if (paging < deepPageShare + 0.1) {
+            criteria.setPage(1 + random.nextInt(4));
+        } else if (random.nextDouble() < 0.1) {
+            criteria.setFacets(true); // a first page with the filter sidebar
+        }
+        return criteria;
+    }
+
+    static String toQuery(CourseSearchCriteria criteria) {
+        StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        add(query, "q", criteria.getQ());
+        add(query, "category", criteria.getCategory());
+        add(query, "type", criteria.getType());
+        add(query, "minPrice", criteria.getMinPrice());
+        add(query, "maxPrice", criteria.getMaxPrice());
+        add(query, "minAge", criteria.getMinAge());
+        add(query, "maxAge", criteria.getMaxAge());
+        add(query, "sort", criteria.getSort());
+        add(query, "page", criteria.getPage());
+        add(query, "size", criteria.getSize());
+        add(query, "facets", criteria.getFacets());
+        return query.toString();
+    }
+
+    private static void add(StringJoiner query, String name, Object value) {
+        if (value != null) {
+            query.add(name + "=" + encode(value.toString()));
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Title words of Faker courses, most frequent first, so Zipf rank 1 is the most common word.
+     */
+    private static String[] vocabulary(long seed) {
+        Faker faker = new Faker(new Random(seed));
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < VOCABULARY_TITLES; i++) {
+            for (String word : faker.educator().course().toLowerCase().split("\\s+")) {
+                if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+                    counts.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+        List<String> ranked = counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+        return ranked.toArray(String[]::new);
+    }
+
+    /**
+     * Zipf distribution over ranks {@code 0..n-1}: rank {@code k} is drawn with probability proportional to
+     * {@code 1 / (k + 1)^exponent}.
+     */
+    static final class Zipf {
+
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1 / Math.pow(k + 1, exponent);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < n; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+}
@@ -2,8 +2,22 @@ package com.undoschool.course_search;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.elasticsearch.ElasticsearchDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.elasticsearch.ElasticsearchRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.elasticsearch.ReactiveElasticsearchRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchRestClientAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@SpringBootApplication
+// The client comes from ElasticsearchConfig and no Spring Data template or repositories are used.
+@SpringBootApplication(exclude = {
+		ElasticsearchClientAutoConfiguration.class,
+		ElasticsearchRestClientAutoConfiguration.class,
+		ElasticsearchDataAutoConfiguration.class,
+		ElasticsearchRepositoriesAutoConfiguration.class,
+		ReactiveElasticsearchRepositoriesAutoConfiguration.class
+})
+@ConfigurationPropertiesScan
 public class CourseSearchApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,162 @@
+package com.undoschool.course_search.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "course-search")
+public class CourseSearchProperties {
+
+    private Loader loader = new Loader();
+    private Ingest ingest = new Ingest();
+    private Cache cache = new Cache();
+    private Suggest suggest = new Suggest();
+    private Paging paging = new Paging();
+    private Execution execution = new Execution();
+    private Transport transport = new Transport();
+    private Facets facets = new Facets();
+    private Backend backend = new Backend();
+    private Results results = new Results();
+    private Batch batch = new Batch();
+    private Metrics metrics = new Metrics();
+    private Changes changes = new Changes();
+    private Relevance relevance = new Relevance();
+
+    @Data
+    public static class Loader {
+        private String source = "faker"; // "faker" or "file"
+        private int generatedCourses = 50; // number of Faker courses generated on startup
+        private boolean reindexOnStartup = true; // build a new generation in the background once the app is ready
+        private int retainedGenerations = 2; // generations kept after a swap, including the live one
+        private FileSource file = new FileSource();
+    }
+
+    @Data
+    public static class FileSource {
+        private String location = "classpath:sample_courses.json"; // classpath: or file: location of a JSON array
+        private int mappingThreads = Runtime.getRuntime().availableProcessors();
+        private int checkpointInterval = 10_000; // records per persisted checkpoint
+        private String checkpointPath = "course-ingest-checkpoint.json";
+        private boolean resume = true; // continue an interrupted load from its checkpoint
+    }
+
+    @Data
+    public static class Ingest {
+        private int bulkMaxOperations = 1000; // cut a bulk request after this many documents...
+        private long bulkMaxBytes = 5L * 1024 * 1024; // ...or after this many bytes of source, whichever comes first
+        private int maxConcurrentRequests = 2; // bulk requests in flight; add() blocks once reached (backpressure)
+        private Duration flushInterval = Duration.ofSeconds(1);
+        private int maxRetries = 3; // retries of individually rejected items (429 / 5xx)
+        private Duration retryBackoff = Duration.ofMillis(200); // doubled on every attempt
+        private boolean disableRefreshDuringLoad = true; // refresh_interval=-1 and 0 replicas while loading
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000; // result pages kept; evicted by W-TinyLFU frequency
+        private Duration ttl = Duration.ofSeconds(60); // upper bound on staleness between index generations
+    }
+
+    @Data
+    public static class Suggest {
+        private boolean inMemory = true; // serve from the in-process trie once built; otherwise always ask Elasticsearch
+        private int size = 10; // suggestions returned per prefix
+        private Duration recencyHorizon = Duration.ofDays(90); // sessions starting sooner than this raise a course's suggestion weight
+        private int recencyWeight = 100; // weight added for a session starting now, falling linearly to 0 at the horizon
+        private int popularityWeight = 10; // weight added per unit of ln(1 + popularity)
+    }
+
+    @Data
+    public static class Paging {
+        private int maxFromDepth = 1000; // beyond this (page + 1) * size, from/size is replaced by search_after
+        private int maxPageSize = 100; // largest size a search may ask for
+        private int skipBatchSize = 1000; // sort-values-only hits fetched per step when skipping to a deep page
+        private Duration pitKeepAlive = Duration.ofMinutes(1); // how long a cursor stays consistent between requests
+        private String cursorSecret; // HMAC key for cursors; random per process when unset
+    }
+
+    @Data
+    public static class Execution {
+        private String mode = "blocking"; // "blocking": ElasticsearchClient on the request thread; "async": ElasticsearchAsyncClient
+        private Duration deadline = Duration.ofSeconds(2); // async mode: in-flight Elasticsearch calls are cancelled after this
+        private int maxConcurrentCalls = 64; // async mode: bulkhead; further searches are rejected with 503
+    }
+
+    @Data
+    public static class Transport {
+        private int maxConnections = 100; // across all nodes
+        private int maxConnectionsPerRoute = 50; // per node
+        private int ioThreads = Runtime.getRuntime().availableProcessors(); // IO reactor dispatcher threads
+        private boolean compression = true; // gzip request bodies (bulk benefits most) and accept gzip responses
+        private Duration keepAlive = Duration.ofMinutes(1); // upper bound for reusing an idle pooled connection
+        private Duration connectionRequestTimeout = Duration.ofSeconds(1); // wait for a free pooled connection
+    }
+
+    @Data
+    public static class Facets {
+        private int termsSize = 20; // category/type values returned per facet
+        private double priceInterval = 500; // price histogram bucket width
+        private double ageInterval = 2; // minAge histogram bucket width
+    }
+
+    @Data
+    public static class Backend {
+        private String primary = "elasticsearch"; // "elasticsearch", or "memory" to search in-process data loaded from the loader source
+        private boolean fallback = true; // keep an in-memory copy of the live generation and serve it while Elasticsearch is failing
+        private int failureThreshold = 5; // consecutive Elasticsearch failures that open the circuit
+        private Duration openDuration = Duration.ofSeconds(30); // how long to serve from memory before probing Elasticsearch again
+
+        public boolean isMemoryPrimary() {
+            return "memory".equalsIgnoreCase(primary);
+        }
+    }
+
+    @Data
+    public static class Results {
+        private int trackTotalHitsUpTo = 10_000; // count matches exactly up to here, then report "10,000+"
+        private List<String> sourceIncludes = new ArrayList<>(List.of(
+                "id", "title", "description", "category", "type", "minAge", "maxAge", "price", "nextSessionDate")); // fields the list view renders
+    }
+
+    @Data
+    public static class Batch {
+        private int maxSize = 20; // searches accepted by one /api/search/batch request, counted before de-duplication
+    }
+
+    @Data
+    public static class Metrics {
+        private double stageSampleRate = 0.1; // share of searches whose request building and response mapping are timed
+    }
+
+    @Data
+    public static class Changes {
+        private Duration batchWindow = Duration.ofMillis(500); // changes to the same course within this window are coalesced into one update
+        private int maxBatchSize = 1000; // update operations per bulk request
+        private int maxPending = 10_000; // courses waiting for the next flush; further changes are rejected with 503
+        private Duration versionRetention = Duration.ofHours(1); // how long the last accepted version of a course is remembered
+        private long maxTrackedVersions = 100_000; // courses whose last accepted version is remembered
+    }
+
+    @Data
+    public static class Relevance {
+        private float titleBoost = 3; // title matches outrank description matches by this factor
+        private float prefixBoost = 1; // partial-word matches on title.prefix; 0 leaves the subfield out of queries
+        private int rescoreWindow = 50; // top hits re-ranked by title phrase proximity; 0 disables the rescore
+        private float phraseBoost = 2; // weight of the phrase score added to rescored hits
+        private int phraseSlop = 1; // words allowed between or out of order in a phrase match
+        private String fuzziness = "fallback"; // "fallback": fuzzy pass only when nothing matched; "always": every query is fuzzy; "off"
+
+        public boolean isFuzzyAlways() {
+            return "always".equalsIgnoreCase(fuzziness);
+        }
+
+        public boolean isFuzzyFallback() {
+            return "fallback".equalsIgnoreCase(fuzziness);
+        }
+    }
+}
@@ -1,30 +1,155 @@
 package com.undoschool.course_search.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Elasticsearch transport built from {@code spring.elasticsearch.*} (hosts, credentials, connect/socket
+ * timeouts) and {@code course-search.transport.*} (pool sizes, IO threads, keep-alive, compression).
+ * <p>
+ * The low-level {@link RestClient} round-robins requests over all configured hosts and takes a node that
+ * fails out of rotation with exponential backoff (one minute, doubling up to thirty) before retrying it.
+ */
+@Slf4j
 @Configuration
+@EnableConfigurationProperties(ElasticsearchProperties.class)
 public class ElasticsearchConfig {
 
+    // Lifecycle belongs to the RestClient, which shuts the pool down when it is closed.
+    @Bean(destroyMethod = "")
+    public PoolingNHttpClientConnectionManager elasticsearchConnectionManager(ElasticsearchProperties elasticsearchProperties,
+                                                                              CourseSearchProperties properties) {
+        CourseSearchProperties.Transport transport = properties.getTransport();
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(transport.getIoThreads())
+                .setConnectTimeout((int) elasticsearchProperties.getConnectionTimeout().toMillis())
+                .setSoTimeout((int) elasticsearchProperties.getSocketTimeout().toMillis())
+                .setSoKeepAlive(true)
+                .build();
+        try {
+            PoolingNHttpClientConnectionManager connectionManager =
+                    new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+            connectionManager.setMaxTotal(transport.getMaxConnections());
+            connectionManager.setDefaultMaxPerRoute(transport.getMaxConnectionsPerRoute());
+            return connectionManager;
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Could not start the Elasticsearch IO reactor", e);
+        }
+    }
+
     @Bean
-    public ElasticsearchClient elasticsearchClient() {
+    public RestClient elasticsearchRestClient(ElasticsearchProperties elasticsearchProperties,
+                                              CourseSearchProperties properties,
+                                              PoolingNHttpClientConnectionManager connectionManager) {
+        CourseSearchProperties.Transport transport = properties.getTransport();
+        HttpHost[] hosts = elasticsearchProperties.getUris().stream()
+                .map(HttpHost::create)
+                .toArray(HttpHost[]::new);
+
+        RestClientBuilder builder = RestClient.builder(hosts)
+                .setCompressionEnabled(transport.isCompression())
+                .setNodeSelector(NodeSelector.SKIP_DEDICATED_MASTERS)
+                .setFailureListener(new RestClient.FailureListener() {
+                    @Override
+                    public void onFailure(Node node) {
+                        log.warn("Elasticsearch node {} failed and is backed off", node.getHost());
+                    }
+                })
+                .setRequestConfigCallback(requestConfig -> requestConfig
+                        .setConnectTimeout((int) elasticsearchProperties.getConnectionTimeout().toMillis())
+                        .setSocketTimeout((int) elasticsearchProperties.getSocketTimeout().toMillis())
+                        .setConnectionRequestTimeout((int) transport.getConnectionRequestTimeout().toMillis()))
+                .setHttpClientConfigCallback(httpClient -> {
+                    httpClient.setConnectionManager(connectionManager)
+                            // honour the server's Keep-Alive header, but never keep an idle connection longer than configured
+                            .setKeepAliveStrategy((response, context) -> {
+                                long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                                long maxKeepAlive = transport.getKeepAlive().toMillis();
+                                return serverKeepAlive > 0 ? Math.min(serverKeepAlive, maxKeepAlive) : maxKeepAlive;
+                            });
+                    if (StringUtils.hasText(elasticsearchProperties.getUsername())) {
+                        BasicCredentialsProvider credentials = new BasicCredentialsProvider();
+                        credentials.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(
+                                elasticsearchProperties.getUsername(), elasticsearchProperties.getPassword()));
+                        httpClient.setDefaultCredentialsProvider(credentials);
+                    }
+                    return httpClient;
+                });
+        if (StringUtils.hasText(elasticsearchProperties.getPathPrefix())) {
+            builder.setPathPrefix(elasticsearchProperties.getPathPrefix());
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public ElasticsearchTransport elasticsearchTransport(RestClient restClient) {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
 
         JacksonJsonpMapper jsonpMapper = new JacksonJsonpMapper(mapper);
 
-        RestClient restClient = RestClient.builder(
-                new HttpHost("localhost", 9200)).build();
-
-        RestClientTransport transport = new RestClientTransport(restClient, jsonpMapper);
+        return new RestClientTransport(restClient, jsonpMapper);
+    }
 
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
         return new ElasticsearchClient(transport);
     }
+
+    // Shares the transport (and so the connection pool) with the blocking client.
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
+
+    /**
+     * {@code elasticsearch.client.connections{state=leased|available|pending|max}} gauges over the whole pool.
+     */
+    @Bean
+    public MeterBinder elasticsearchConnectionPoolMetrics(PoolingNHttpClientConnectionManager connectionManager) {
+        return registry -> {
+            gauge(registry, connectionManager, "leased", PoolStats::getLeased);
+            gauge(registry, connectionManager, "available", PoolStats::getAvailable);
+            gauge(registry, connectionManager, "pending", PoolStats::getPending);
+            gauge(registry, connectionManager, "max", PoolStats::getMax);
+        };
+    }
+
+    private static void gauge(MeterRegistry registry, PoolingNHttpClientConnectionManager connectionManager,
+                              String state, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("elasticsearch.client.connections", connectionManager, cm -> value.applyAsDouble(cm.getTotalStats()))
+                .tag("state", state)
+                .description("Connections in the Elasticsearch client pool")
+                .register(registry);
+    }
 }
@@ -0,0 +1,41 @@
+package com.undoschool.course_search.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reports time-to-first-request: how long after JVM start the first application request was answered, in the
+ * log and as {@code application.first.request.time} next to Spring Boot's {@code application.started.time} and
+ * {@code application.ready.time}. Actuator requests such as probes do not count.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupTimeReporter {
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (reported.get() || event.getRequestUrl().startsWith("/actuator/") || !reported.compareAndSet(false, true)) {
+            return;
+        }
+        long millis = event.getTimestamp() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        TimeGauge.builder("application.first.request.time", () -> millis, TimeUnit.MILLISECONDS)
+                .description("Time taken from JVM start until the first application request was answered")
+                .register(meterRegistry);
+        log.info("First request ({} {}, status {}) answered {} ms after JVM start",
+                event.getMethod(), event.getRequestUrl(), event.getStatusCode(), millis);
+    }
+}
@@ -1,17 +1,32 @@
 package com.undoschool.course_search.controller;
 
+import com.undoschool.course_search.config.CourseSearchProperties;
 import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.service.AsyncCourseSearchService;
 import com.undoschool.course_search.service.CourseSearchService;
+import com.undoschool.course_search.service.CourseSuggestService;
+import com.undoschool.course_search.service.StreamingCourseSearch;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @RestController
@@ -20,21 +35,108 @@ import java.util.List;
 public class CourseController {
 
     private final CourseSearchService courseSearchService;
+    private final CourseSuggestService courseSuggestService;
+    private final AsyncCourseSearchService asyncCourseSearchService;
+    private final StreamingCourseSearch streamingCourseSearch;
+    private final CourseSearchProperties properties;
 
+    /**
+     * Returns a {@link ResponseEntity} in blocking mode and a {@link CompletableFuture} of one in async mode;
+     * Spring MVC picks the return value handler from the runtime type, so the blocking path never goes
+     * through an async dispatch.
+     */
     @GetMapping
-    public ResponseEntity<?> searchCourses(CourseSearchCriteria criteria) {
+    public Object searchCourses(CourseSearchCriteria criteria) {
+        if (properties.getExecution().getMode().equalsIgnoreCase("async")) {
+            return asyncCourseSearchService.searchCourses(criteria)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(this::asyncSearchError);
+        }
         try {
             return ResponseEntity.ok(courseSearchService.searchCourses(criteria));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid search request: " + e.getMessage());
+        } catch (IOException e) {
+            log.error("Error during search: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error performing search: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> asyncSearchError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UncheckedIOException unchecked) {
+            cause = unchecked.getCause();
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().body("Invalid search request: " + cause.getMessage());
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Search is overloaded, retry later");
+        }
+        if (cause instanceof TimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("Search timed out: " + cause.getMessage());
+        }
+        log.error("Error during search: {}", cause.getMessage(), cause);
+        return ResponseEntity.internalServerError().body("Error performing search: " + cause.getMessage());
+    }
+
+    /**
+     * Same parameters and response as {@link #searchCourses} (without facets), with hits copied from the
+     * Elasticsearch response into the output as it is read; see {@link StreamingCourseSearch}.
+     */
+    @GetMapping("/stream")
+    public Object streamCourses(CourseSearchCriteria criteria, HttpServletResponse response) {
+        try {
+            StreamingCourseSearch.Output output = streamingCourseSearch.search(criteria);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            // returned as such (not in a ResponseEntity<?>) so Spring MVC picks the streaming return value handler
+            return (StreamingResponseBody) output::writeTo;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid search request: " + e.getMessage());
         } catch (IOException e) {
             log.error("Error during search: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Error performing search: " + e.getMessage());
         }
     }
 
+    /**
+     * Facet counts for the given filters without hits; {@code page}, {@code size} and {@code sort} are ignored.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<?> getFacets(CourseSearchCriteria criteria) {
+        try {
+            return ResponseEntity.ok(courseSearchService.searchFacets(criteria));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid search request: " + e.getMessage());
+        } catch (IOException e) {
+            log.error("Error computing facets: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error computing facets: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a JSON array of search criteria (the {@code /api/search} parameters as fields) together, always on
+     * the blocking path; see {@link CourseSearchService#searchBatch}. Failed entries are reported in place,
+     * so the response is 200 unless the batch itself is rejected.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> searchBatch(@RequestBody List<CourseSearchCriteria> searches) {
+        try {
+            return ResponseEntity.ok(courseSearchService.searchBatch(searches));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid batch request: " + e.getMessage());
+        } catch (IOException e) {
+            log.error("Error during batch search: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error performing batch search: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/suggest")
-    public ResponseEntity<List<String>> getSuggestions(@RequestParam String q) {
+    public ResponseEntity<List<String>> getSuggestions(@RequestParam String q,
+                                                       @RequestParam(required = false) String category,
+                                                       @RequestParam(required = false) String type) {
         try {
-            List<String> suggestions = courseSearchService.getSuggestions(q);
+            List<String> suggestions = courseSuggestService.suggestCourses(q, category, type);
             return ResponseEntity.ok(suggestions);
         } catch (IOException e) {
             log.error("Error during suggestion search: {}", e.getMessage(), e);
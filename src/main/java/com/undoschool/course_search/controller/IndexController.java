@@ -0,0 +1,74 @@
+package com.undoschool.course_search.controller;
+
+import com.undoschool.course_search.dto.CourseChange;
+import com.undoschool.course_search.loader.CourseChangeFeed;
+import com.undoschool.course_search.loader.CourseDataLoader;
+import com.undoschool.course_search.loader.IndexLoadStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/index")
+@RequiredArgsConstructor
+public class IndexController {
+
+    private final CourseDataLoader courseDataLoader;
+    private final CourseChangeFeed courseChangeFeed;
+
+    @GetMapping("/status")
+    public ResponseEntity<IndexLoadStatus> getStatus() {
+        return ResponseEntity.ok(courseDataLoader.getStatus());
+    }
+
+    @PostMapping("/reindex")
+    public ResponseEntity<IndexLoadStatus> reindex() {
+        if (!courseDataLoader.startReindex()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(courseDataLoader.getStatus());
+        }
+        return ResponseEntity.accepted().body(courseDataLoader.getStatus());
+    }
+
+    /**
+     * Queues a JSON array of {@link CourseChange}s; they are applied within {@code changes.batch-window}, so
+     * the response is 202 with the number of changes accepted and dropped as stale.
+     */
+    @PostMapping("/changes")
+    public ResponseEntity<?> submitChanges(@RequestBody List<CourseChange> changes) {
+        return submit(changes);
+    }
+
+    @PatchMapping("/courses/{id}")
+    public ResponseEntity<?> updateCourse(@PathVariable String id, @RequestParam long version,
+                                          @RequestBody Map<String, Object> fields) {
+        return submit(List.of(CourseChange.update(id, version, fields)));
+    }
+
+    @DeleteMapping("/courses/{id}")
+    public ResponseEntity<?> deleteCourse(@PathVariable String id, @RequestParam long version) {
+        return submit(List.of(CourseChange.deletion(id, version)));
+    }
+
+    private ResponseEntity<?> submit(List<CourseChange> changes) {
+        try {
+            return ResponseEntity.accepted().body(courseChangeFeed.submit(changes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid change request: " + e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.undoschool.course_search.document;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Value of the {@code suggest} completion field: the inputs a prefix is matched against, the weight that
+ * ranks the course among other matches, and the {@code scope} context values a suggest request can be
+ * narrowed to (see {@code CourseSuggestTokens#scope}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CourseCompletion {
+
+    private List<String> input;
+    private Integer weight;
+    private Map<String, List<String>> contexts;
+
+    /**
+     * Reads the plain array of inputs held by generations indexed before weights and contexts were introduced.
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static CourseCompletion of(List<String> input) {
+        return new CourseCompletion(input, null, null);
+    }
+}
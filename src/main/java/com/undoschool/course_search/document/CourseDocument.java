@@ -1,6 +1,7 @@
 package com.undoschool.course_search.document;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.AllArgsConstructor; // Add this import
 import lombok.Builder;
 import lombok.Data;
@@ -18,6 +19,7 @@ import java.time.LocalDateTime;
 // @Document and @Setting are good for context, even if mappings are from JSON
 @Document(indexName = "courses")
 @Setting(settingPath = "static/es-settings.json")
+@JsonIgnoreProperties(ignoreUnknown = true) // e.g. changeVersion, written by CourseChangeFeed
 public class CourseDocument {
 
     @Id // This annotation is primarily for Spring Data Elasticsearch's repository abstraction.
@@ -30,10 +32,11 @@ public class CourseDocument {
     private Integer minAge;
     private Integer maxAge;
     private Double price;
+    private Integer popularity; // e.g. recent enrolments; optional, raises the suggestion weight
 
     // Ensure this format matches exactly how Elasticsearch stores the date after indexing
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime nextSessionDate;
 
-    private String[] suggest;
+    private CourseCompletion suggest;
 }
\ No newline at end of file
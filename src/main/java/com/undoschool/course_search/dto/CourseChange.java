@@ -0,0 +1,32 @@
+package com.undoschool.course_search.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * One change to a course, as accepted by {@code /api/index/changes}: either the course {@code fields} to set
+ * (a partial update, creating the course if it does not exist yet) or a {@code delete}. {@code version} is
+ * assigned by the producer and must grow with every change to the same course; a change whose version is not
+ * above the last one applied to that course is ignored.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseChange {
+
+    private String id;
+    private Long version;
+    private boolean delete;
+    private Map<String, Object> fields;
+
+    public static CourseChange update(String id, long version, Map<String, Object> fields) {
+        return new CourseChange(id, version, false, fields);
+    }
+
+    public static CourseChange deletion(String id, long version) {
+        return new CourseChange(id, version, true, null);
+    }
+}
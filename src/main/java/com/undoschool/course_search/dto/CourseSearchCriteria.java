@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 public class CourseSearchCriteria {
@@ -21,4 +22,35 @@ public class CourseSearchCriteria {
     private String sort; // e.g., "price:asc", "price:desc", "upcoming"
     private Integer page; // default 0
     private Integer size; // default 10
+    private String cursor; // opaque cursor from a previous response; replaces page for deep paging
+    private Boolean facets; // also return category/type counts and price/age histograms
+    private List<String> fields; // list-view fields to return, e.g. "title,price"; course-search.results.source-includes when absent
+
+    /**
+     * Canonical copy used as the result-cache key and to build the query: blank strings become null,
+     * {@code q} is trimmed and lowercased (the analyzers lowercase anyway), {@code sort} is lowercased
+     * with blank meaning {@code upcoming}, {@code fields} are trimmed, de-duplicated and sorted, and
+     * page/size defaults are filled in.
+     */
+    public CourseSearchCriteria normalized(int defaultPage, int defaultSize) {
+        CourseSearchCriteria normalized = new CourseSearchCriteria();
+        normalized.setQ(q == null || q.isBlank() ? null : q.trim().toLowerCase());
+        normalized.setMinAge(minAge);
+        normalized.setMaxAge(maxAge);
+        normalized.setCategory(category == null || category.isBlank() ? null : category);
+        normalized.setType(type == null || type.isBlank() ? null : type);
+        normalized.setMinPrice(minPrice);
+        normalized.setMaxPrice(maxPrice);
+        normalized.setStartDate(startDate);
+        normalized.setSort(sort == null || sort.isBlank() ? "upcoming" : sort.trim().toLowerCase());
+        normalized.setPage(page != null ? page : defaultPage);
+        normalized.setSize(size != null ? size : defaultSize);
+        normalized.setCursor(cursor == null || cursor.isBlank() ? null : cursor);
+        normalized.setFacets(Boolean.TRUE.equals(facets));
+        if (fields != null) {
+            List<String> names = fields.stream().map(String::trim).filter(f -> !f.isEmpty()).distinct().sorted().toList();
+            normalized.setFields(names.isEmpty() ? null : names);
+        }
+        return normalized;
+    }
 }
\ No newline at end of file
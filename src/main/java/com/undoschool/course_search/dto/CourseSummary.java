@@ -0,0 +1,31 @@
+package com.undoschool.course_search.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * List-view projection of a course, as search pages return it: hits are read from {@code _source} straight
+ * into this type, without the {@code suggest} inputs, and fields outside the requested {@code fields} are
+ * left out of the response.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CourseSummary {
+
+    private String id;
+    private String title;
+    private String description;
+    private String category;
+    private String type;
+    private Integer minAge;
+    private Integer maxAge;
+    private Double price;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss") // as stored in _source
+    private LocalDateTime nextSessionDate;
+}
@@ -0,0 +1,86 @@
+package com.undoschool.course_search.loader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Computes a CRC32 over exactly the bytes a parser has consumed, even though the parser reads ahead.
+ * Bytes read but not yet {@link #advanceTo advanced past} are buffered, so memory stays bounded by the
+ * parser's read-ahead plus one record.
+ */
+class ChecksumInputStream extends FilterInputStream {
+
+    private final CRC32 crc = new CRC32();
+    private byte[] pending = new byte[16 * 1024];
+    private int pendingLength;
+    private long checksummed;
+
+    ChecksumInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            append(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            append(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Route skips through read() so skipped bytes are checksummed too.
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    /**
+     * Folds the bytes up to {@code offset} (exclusive, counted from the start of the stream) into the checksum.
+     */
+    void advanceTo(long offset) {
+        int n = (int) (offset - checksummed);
+        if (n <= 0) {
+            return;
+        }
+        if (n > pendingLength) {
+            throw new IllegalStateException("Offset " + offset + " is beyond the bytes read so far");
+        }
+        crc.update(pending, 0, n);
+        System.arraycopy(pending, n, pending, 0, pendingLength - n);
+        pendingLength -= n;
+        checksummed = offset;
+    }
+
+    long checksum() {
+        return crc.getValue();
+    }
+
+    private void append(byte[] b, int off, int len) {
+        if (pendingLength + len > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + len));
+        }
+        System.arraycopy(b, off, pending, pendingLength, len);
+        pendingLength += len;
+    }
+}
@@ -0,0 +1,226 @@
+package com.undoschool.course_search.loader;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.util.BinaryData;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams {@link CourseDocument}s into an index through the client's {@link BulkIngester}.
+ * Requests are cut by document count and byte size, at most {@code maxConcurrentRequests} are in flight
+ * (further {@link #add} calls block), and items rejected with 429/5xx are re-queued with exponential backoff.
+ * Not reusable: create one per load and {@link #finish()} it to wait for everything to be acknowledged.
+ * <p>
+ * Bulk round trips are timed as {@code course.ingest.bulk} ({@code outcome=success|failure}) with their size
+ * in {@code course.ingest.bulk.documents}, and documents are counted in
+ * {@code course.ingest.documents{result=indexed|failed|retried}}.
+ */
+@Slf4j
+public class CourseBulkIndexer implements CourseSink, AutoCloseable {
+
+    private final String indexName;
+    private final ElasticsearchClient elasticsearchClient;
+    private final CourseSearchProperties.Ingest settings;
+    private final BulkIngester<PendingDocument> ingester;
+    private final ScheduledExecutorService retryScheduler;
+
+    // documents added but not yet acknowledged or given up on; finish() waits for this to reach zero
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean finished;
+
+    private final Map<Long, Long> bulkStarts = new ConcurrentHashMap<>(); // executionId -> System.nanoTime()
+    private final Timer bulkSucceeded;
+    private final Timer bulkFailed;
+    private final DistributionSummary bulkDocuments;
+    private final Counter documentsIndexed;
+    private final Counter documentsFailed;
+    private final Counter documentsRetried;
+
+    private record PendingDocument(String id, BinaryData source, int attempt, Runnable onIndexed) {
+    }
+
+    public CourseBulkIndexer(ElasticsearchClient elasticsearchClient, String indexName, CourseSearchProperties.Ingest settings,
+                             MeterRegistry meterRegistry) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.indexName = indexName;
+        this.settings = settings;
+        this.bulkSucceeded = bulkTimer(meterRegistry, "success");
+        this.bulkFailed = bulkTimer(meterRegistry, "failure");
+        this.bulkDocuments = DistributionSummary.builder("course.ingest.bulk.documents")
+                .description("Documents per bulk request")
+                .register(meterRegistry);
+        this.documentsIndexed = documentCounter(meterRegistry, "indexed");
+        this.documentsFailed = documentCounter(meterRegistry, "failed");
+        this.documentsRetried = documentCounter(meterRegistry, "retried");
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bulk-retry-" + indexName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ingester = BulkIngester.of(b -> b
+                .client(elasticsearchClient)
+                .maxOperations(settings.getBulkMaxOperations())
+                .maxSize(settings.getBulkMaxBytes())
+                .maxConcurrentRequests(settings.getMaxConcurrentRequests())
+                .flushInterval(settings.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS)
+                .listener(new RetryingListener())
+        );
+    }
+
+    /**
+     * Queues a document; {@code onIndexed} (if any) runs on a client thread once Elasticsearch has acknowledged it.
+     */
+    @Override
+    public void add(CourseDocument course, Runnable onIndexed) {
+        // Serialize once: the exact byte size drives request cutting and is reused verbatim on retries.
+        BinaryData source = BinaryData.of(course, elasticsearchClient._jsonpMapper());
+        outstanding.incrementAndGet();
+        submit(new PendingDocument(course.getId(), source, 0, onIndexed));
+    }
+
+    private void submit(PendingDocument document) {
+        ingester.add(op -> op.index(idx -> idx
+                .index(indexName)
+                .id(document.id())
+                .document(document.source())
+        ), document);
+    }
+
+    /**
+     * Flushes, waits for every document (including retries) to be acknowledged and returns the totals.
+     */
+    public IngestStats finish() {
+        if (finished) {
+            return stats();
+        }
+        finished = true;
+        try {
+            while (outstanding.get() > 0) {
+                ingester.flush();
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for {} outstanding documents on '{}'", outstanding.get(), indexName);
+        } finally {
+            ingester.close();
+            retryScheduler.shutdownNow();
+        }
+        return stats();
+    }
+
+    @Override
+    public void close() {
+        finish();
+    }
+
+    public IngestStats stats() {
+        return new IngestStats(indexed.get(), failed.get(), retried.get(), bytesSent.get(),
+                ingester.requestCount(), System.nanoTime() - startNanos);
+    }
+
+    private void retryOrGiveUp(PendingDocument document, String reason) {
+        if (document.attempt() >= settings.getMaxRetries()) {
+            failed.incrementAndGet();
+            documentsFailed.increment();
+            outstanding.decrementAndGet();
+            log.error("Giving up on course '{}' after {} attempts: {}", document.id(), document.attempt() + 1, reason);
+            return;
+        }
+        retried.incrementAndGet();
+        documentsRetried.increment();
+        long delayMillis = settings.getRetryBackoff().toMillis() << document.attempt();
+        PendingDocument next = new PendingDocument(document.id(), document.source(), document.attempt() + 1, document.onIndexed());
+        // Never re-add from the listener thread: add() may block on backpressure waiting for that very thread.
+        retryScheduler.schedule(() -> submit(next), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static Timer bulkTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("course.ingest.bulk")
+                .tag("outcome", outcome)
+                .description("Bulk request round trips")
+                .register(registry);
+    }
+
+    private static Counter documentCounter(MeterRegistry registry, String result) {
+        return Counter.builder("course.ingest.documents")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private void recordBulk(long executionId, Timer timer) {
+        Long start = bulkStarts.remove(executionId);
+        if (start != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    private class RetryingListener implements BulkListener<PendingDocument> {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request, List<PendingDocument> contexts) {
+            bulkStarts.put(executionId, System.nanoTime());
+            bulkDocuments.record(contexts.size());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<PendingDocument> contexts, BulkResponse response) {
+            recordBulk(executionId, bulkSucceeded);
+            List<BulkResponseItem> items = response.items();
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                PendingDocument document = contexts.get(i);
+                if (item.error() == null) {
+                    indexed.incrementAndGet();
+                    documentsIndexed.increment();
+                    bytesSent.addAndGet(document.source().size());
+                    outstanding.decrementAndGet();
+                    if (document.onIndexed() != null) {
+                        document.onIndexed().run();
+                    }
+                } else if (isRetryable(item.status())) {
+                    retryOrGiveUp(document, item.error().reason());
+                } else {
+                    failed.incrementAndGet();
+                    documentsFailed.increment();
+                    outstanding.decrementAndGet();
+                    log.error("Course '{}' rejected with status {}: {}", document.id(), item.status(), item.error().reason());
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<PendingDocument> contexts, Throwable failure) {
+            recordBulk(executionId, bulkFailed);
+            log.warn("Bulk request {} with {} documents failed: {}", executionId, contexts.size(), failure.getMessage());
+            contexts.forEach(document -> retryOrGiveUp(document, failure.getMessage()));
+        }
+    }
+}
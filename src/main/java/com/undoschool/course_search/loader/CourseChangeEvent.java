@@ -0,0 +1,22 @@
+package com.undoschool.course_search.loader;
+
+import com.undoschool.course_search.dto.CourseChange;
+
+import java.util.List;
+
+/**
+ * Published once a batch of {@link CourseChange}s has been applied (and made searchable), with the changes
+ * that took effect. Changes ignored as out of date are not included. Anything that caches data derived from
+ * the affected courses should drop or patch it when this arrives.
+ */
+public record CourseChangeEvent(List<CourseChange> changes) {
+
+    /**
+     * Whether suggestions may have changed: a course was deleted, or a field its completion inputs, weight or
+     * contexts come from was updated.
+     */
+    public boolean affectsSuggestions() {
+        return changes.stream().anyMatch(c -> c.isDelete()
+                || c.getFields().keySet().stream().anyMatch(CourseSuggestTokens.SOURCE_FIELDS::contains));
+    }
+}
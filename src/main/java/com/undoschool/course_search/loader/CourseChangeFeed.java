@@ -0,0 +1,424 @@
+package com.undoschool.course_search.loader;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.Script;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import co.elastic.clients.json.JsonData;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link CourseChange}s to the live {@code courses} alias without a reindex.
+ * <p>
+ * Accepted changes are queued per course and flushed every {@code changes.batch-window}. Changes to the same
+ * course within a window are coalesced into one (fields merged, the highest version wins, a delete supersedes
+ * older updates), so a burst of price updates becomes a single bulk item. Every course is sent as a bulk
+ * {@code update} whose script compares the change's version with the {@code changeVersion} stored in the
+ * document and turns stale changes into no-ops; Elasticsearch rejects {@code version_type=external} on
+ * updates, so this is how external versions are honoured for partial documents. The last accepted version of
+ * each course is also remembered for {@code changes.version-retention} and older changes are dropped on
+ * arrival, which covers updates arriving after a delete that the script can no longer see. An update to a
+ * field the completion inputs, weight or contexts come from (see {@link CourseSuggestTokens}) also sets a
+ * recomputed {@code suggest} value, read together with the course's other such fields just before the bulk
+ * request.
+ * <p>
+ * Each bulk request waits for a refresh, then a {@link CourseChangeEvent} with the changes that took effect is
+ * published. With {@code backend.primary=memory} nothing is sent to Elasticsearch and the event is published
+ * right away for the in-memory backend to apply. A reindex rebuilds from the loader source and so loses changes
+ * that are not in it; changes flushed while a reindex is loading are replayed onto the new generation.
+ * <p>
+ * Outcomes are counted in {@code course.changes{result=applied|stale|missing|failed}}.
+ */
+@Slf4j
+@Component
+public class CourseChangeFeed {
+
+    public static final Set<String> UPDATABLE_FIELDS = Set.of(
+            "title", "description", "category", "type", "minAge", "maxAge", "price", "popularity", "nextSessionDate");
+
+    private static final String SCRIPT = """
+            def current = ctx._source.changeVersion;
+            if (current != null && current >= params.version) {
+              ctx.op = 'none';
+            } else if (params.delete) {
+              ctx.op = 'delete';
+            } else {
+              ctx._source.putAll(params.fields);
+              ctx._source.changeVersion = params.version;
+            }""";
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * What became of a submission: changes queued, and changes dropped for being older than one already accepted.
+     */
+    public record Submission(int accepted, int stale) {
+    }
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final CourseDataLoader courseDataLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final CourseSearchProperties properties;
+
+    private final Map<String, CourseChange> pending = new ConcurrentHashMap<>();
+    private final Cache<String, Long> acceptedVersions;
+    // applied to the alias while a reindex was building the next generation, which does not have them
+    private final Queue<CourseChange> appliedDuringLoad = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "course-change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter applied;
+    private final Counter stale;
+    private final Counter missing;
+    private final Counter failed;
+
+    public CourseChangeFeed(ElasticsearchClient elasticsearchClient, CourseDataLoader courseDataLoader,
+                            ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                            CourseSearchProperties properties, MeterRegistry meterRegistry) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.courseDataLoader = courseDataLoader;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.acceptedVersions = Caffeine.newBuilder()
+                .maximumSize(properties.getChanges().getMaxTrackedVersions())
+                .expireAfterWrite(properties.getChanges().getVersionRetention())
+                .build();
+        this.applied = changeCounter(meterRegistry, "applied");
+        this.stale = changeCounter(meterRegistry, "stale");
+        this.missing = changeCounter(meterRegistry, "missing");
+        this.failed = changeCounter(meterRegistry, "failed");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long window = properties.getChanges().getBatchWindow().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushSafely, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Validates and queues {@code changes} for the next flush.
+     *
+     * @throws IllegalArgumentException if any change is invalid; nothing is queued then
+     * @throws RejectedExecutionException if more than {@code changes.max-pending} courses would be waiting
+     */
+    public Submission submit(List<CourseChange> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("No changes given");
+        }
+        List<CourseChange> normalized = changes.stream().map(this::normalize).toList();
+        if (pending.size() + normalized.size() > properties.getChanges().getMaxPending()) {
+            throw new RejectedExecutionException("Too many course changes pending, retry later");
+        }
+        int accepted = 0;
+        for (CourseChange change : normalized) {
+            if (accept(change)) {
+                pending.merge(change.getId(), change, CourseChangeFeed::coalesce);
+                accepted++;
+            } else {
+                stale.increment();
+            }
+        }
+        return new Submission(accepted, normalized.size() - accepted);
+    }
+
+    /**
+     * Records the version of {@code change} unless a version at least as high was accepted for its course.
+     */
+    private boolean accept(CourseChange change) {
+        boolean[] newer = new boolean[1];
+        acceptedVersions.asMap().compute(change.getId(), (id, last) -> {
+            newer[0] = last == null || change.getVersion() > last;
+            return newer[0] ? change.getVersion() : last;
+        });
+        return newer[0];
+    }
+
+    private CourseChange normalize(CourseChange change) {
+        if (change == null || !StringUtils.hasText(change.getId())) {
+            throw new IllegalArgumentException("Every change needs an id");
+        }
+        String id = change.getId();
+        if (change.getVersion() == null || change.getVersion() < 0) {
+            throw new IllegalArgumentException("Change to course '" + id + "' needs a non-negative version");
+        }
+        Map<String, Object> fields = change.getFields();
+        if (change.isDelete()) {
+            if (fields != null && !fields.isEmpty()) {
+                throw new IllegalArgumentException("Change to course '" + id + "' cannot both delete and set fields");
+            }
+            return CourseChange.deletion(id, change.getVersion());
+        }
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("Change to course '" + id + "' sets no fields");
+        }
+        for (String field : fields.keySet()) {
+            if (!UPDATABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field '" + field + "' cannot be changed; updatable fields are "
+                        + new TreeSet<>(UPDATABLE_FIELDS));
+            }
+        }
+
+        // round trip through CourseDocument to reject ill-typed values and store dates in the mapped format
+        CourseDocument typed;
+        try {
+            typed = objectMapper.convertValue(fields, CourseDocument.class);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid fields for course '" + id + "': " + e.getMessage(), e);
+        }
+        Map<String, Object> canonical = objectMapper.convertValue(typed, MAP_TYPE);
+        Map<String, Object> normalized = new LinkedHashMap<>();
+        for (String field : fields.keySet()) {
+            normalized.put(field, canonical.get(field));
+        }
+        return CourseChange.update(id, change.getVersion(), normalized);
+    }
+
+    /**
+     * Folds two changes to the same course into the one change that has the same effect.
+     */
+    static CourseChange coalesce(CourseChange first, CourseChange second) {
+        CourseChange older = first.getVersion() <= second.getVersion() ? first : second;
+        CourseChange newer = older == first ? second : first;
+        if (older.getVersion().equals(newer.getVersion())) {
+            return first; // redelivery
+        }
+        if (newer.isDelete()) {
+            return newer;
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (older.isDelete()) {
+            // the course is recreated from the update alone
+            UPDATABLE_FIELDS.forEach(field -> fields.put(field, null));
+            fields.put("suggest", null);
+        } else {
+            fields.putAll(older.getFields());
+        }
+        fields.putAll(newer.getFields());
+        return CourseChange.update(newer.getId(), newer.getVersion(), fields);
+    }
+
+    /**
+     * The course {@code course} (or a new one when {@code null}) with the fields of {@code change} applied.
+     */
+    public static CourseDocument apply(CourseDocument course, CourseChange change, ObjectMapper objectMapper) {
+        Map<String, Object> source = course != null ? objectMapper.convertValue(course, MAP_TYPE) : new LinkedHashMap<>();
+        source.put("id", change.getId());
+        source.putAll(change.getFields());
+        return objectMapper.convertValue(source, CourseDocument.class);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Flushing course changes failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies everything queued so far.
+     */
+    void flush() {
+        List<CourseChange> batch = new ArrayList<>();
+        for (String id : pending.keySet()) {
+            CourseChange change = pending.remove(id);
+            if (change != null) {
+                batch.add(change);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (properties.getBackend().isMemoryPrimary()) {
+            applied.increment(batch.size());
+            eventPublisher.publishEvent(new CourseChangeEvent(batch));
+            return;
+        }
+        int maxBatchSize = properties.getChanges().getMaxBatchSize();
+        for (int from = 0; from < batch.size(); from += maxBatchSize) {
+            applyToElasticsearch(batch.subList(from, Math.min(batch.size(), from + maxBatchSize)));
+        }
+    }
+
+    private void applyToElasticsearch(List<CourseChange> batch) {
+        List<CourseChange> changes;
+        BulkResponse response;
+        try {
+            changes = withCompletions(batch);
+            response = elasticsearchClient.bulk(b -> b
+                    .refresh(Refresh.WaitFor) // searchable (and so safe to drop caches) once this returns
+                    .operations(changes.stream().map(CourseChangeFeed::updateOperation).toList()));
+        } catch (IOException | ElasticsearchException e) {
+            log.warn("Could not apply {} course changes, retrying with the next window: {}", batch.size(), e.getMessage());
+            batch.forEach(this::requeue);
+            return;
+        }
+
+        List<CourseChange> effective = new ArrayList<>();
+        List<BulkResponseItem> items = response.items();
+        for (int i = 0; i < items.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            CourseChange change = changes.get(i);
+            if (item.error() == null) {
+                if ("noop".equals(item.result())) {
+                    stale.increment();
+                } else {
+                    applied.increment();
+                    effective.add(change);
+                }
+            } else if (item.status() == 404) {
+                missing.increment(); // a delete of a course that does not exist
+                log.debug("Course '{}' not found: {}", change.getId(), item.error().reason());
+            } else if (item.status() == 429 || item.status() >= 500) {
+                requeue(change);
+            } else {
+                failed.increment();
+                log.error("Change {} to course '{}' rejected with status {}: {}",
+                        change.getVersion(), change.getId(), item.status(), item.error().reason());
+            }
+        }
+
+        IndexLoadStatus.State loaderState = courseDataLoader.getStatus().state();
+        if (loaderState == IndexLoadStatus.State.LOADING) {
+            appliedDuringLoad.addAll(effective);
+        } else if (loaderState == IndexLoadStatus.State.FAILED) {
+            appliedDuringLoad.clear(); // the alias never moved
+        }
+        if (!effective.isEmpty()) {
+            eventPublisher.publishEvent(new CourseChangeEvent(effective));
+        }
+    }
+
+    /**
+     * {@code changes} with a recomputed {@code suggest} value for every update to a field it is derived from.
+     * The fields the update leaves alone are read from the alias, so the weight reflects the whole course.
+     */
+    private List<CourseChange> withCompletions(List<CourseChange> changes) throws IOException {
+        List<String> ids = changes.stream()
+                .filter(c -> !c.isDelete() && c.getFields().keySet().stream().anyMatch(CourseSuggestTokens.SOURCE_FIELDS::contains))
+                .map(CourseChange::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return changes;
+        }
+        MgetResponse<CourseDocument> response = elasticsearchClient.mget(m -> m
+                .index(CourseIndexManager.ALIAS)
+                .ids(ids)
+                .sourceIncludes(List.copyOf(CourseSuggestTokens.SOURCE_FIELDS)), CourseDocument.class);
+        Map<String, CourseDocument> current = new HashMap<>();
+        for (MultiGetResponseItem<CourseDocument> item : response.docs()) {
+            if (item.isResult() && item.result().found()) {
+                current.put(item.result().id(), item.result().source());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<CourseChange> result = new ArrayList<>(changes.size());
+        for (CourseChange change : changes) {
+            if (!ids.contains(change.getId())) {
+                result.add(change);
+                continue;
+            }
+            CourseDocument merged = apply(current.get(change.getId()), change, objectMapper);
+            Map<String, Object> fields = new LinkedHashMap<>(change.getFields());
+            fields.put("suggest", objectMapper.convertValue(
+                    CourseSuggestTokens.completion(merged, properties.getSuggest(), now), MAP_TYPE));
+            result.add(CourseChange.update(change.getId(), change.getVersion(), fields));
+        }
+        return result;
+    }
+
+    /**
+     * The bulk {@code update} for one change; the script skips it when the stored version is not older.
+     */
+    static BulkOperation updateOperation(CourseChange change) {
+        Map<String, JsonData> params = new HashMap<>();
+        params.put("version", JsonData.of(change.getVersion()));
+        params.put("delete", JsonData.of(change.isDelete()));
+        params.put("fields", JsonData.of(change.isDelete() ? Map.of() : change.getFields()));
+        Script script = Script.of(s -> s.inline(i -> i.lang("painless").source(SCRIPT).params(params)));
+        return BulkOperation.of(op -> op.update(u -> u
+                .index(CourseIndexManager.ALIAS)
+                .id(change.getId())
+                .retryOnConflict(3)
+                .action(a -> {
+                    a.script(script);
+                    if (!change.isDelete()) {
+                        a.scriptedUpsert(true).upsert(Map.of("id", change.getId()));
+                    }
+                    return a;
+                })));
+    }
+
+    private void requeue(CourseChange change) {
+        pending.merge(change.getId(), change, CourseChangeFeed::coalesce);
+    }
+
+    @EventListener
+    public void onIndexGeneration(IndexGenerationEvent event) {
+        int replayed = 0;
+        CourseChange change;
+        while ((change = appliedDuringLoad.poll()) != null) {
+            requeue(change);
+            replayed++;
+        }
+        if (replayed > 0) {
+            log.info("Replaying {} course changes made during the load onto '{}'", replayed, event.index());
+        }
+    }
+
+    private static Counter changeCounter(MeterRegistry registry, String result) {
+        return Counter.builder("course.changes")
+                .tag("result", result)
+                .description("Incremental course changes by outcome")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flushSafely(); // whatever was accepted but not yet sent
+    }
+}
@@ -1,153 +1,151 @@
 package com.undoschool.course_search.loader;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
-import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
-import co.elastic.clients.elasticsearch.indices.DeleteIndexRequest;
-import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
-import com.github.javafaker.Faker;
-import com.undoschool.course_search.document.CourseDocument;
-import jakarta.annotation.PostConstruct;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream; // Ensure this is imported
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds a new course index generation in the background and swaps the {@code courses} alias to it
+ * once it is fully loaded, so searches keep hitting the previous generation until then.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class CourseDataLoader {
 
     private final ElasticsearchClient elasticsearchClient;
-    private static final String INDEX_NAME = "courses";
-
-    @PostConstruct
-    public void loadData() {
-        try {
-            log.info("Starting CourseDataLoader...");
-            log.info("Deleting existing index '{}' if present...", INDEX_NAME);
-            deleteIndex(); // Call the updated method
-            log.info("Creating index '{}' with custom mappings...", INDEX_NAME);
-            createIndex();
-            log.info("Bulk indexing sample courses...");
-            bulkIndexCourses(50);
-            log.info("CourseDataLoader finished successfully.");
-        } catch (IOException e) {
-            log.error("Error during data loading: {}", e.getMessage(), e);
+    private final CourseIndexManager indexManager;
+    private final CourseSearchProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final List<CourseSource> sources;
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "course-index-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<IndexLoadStatus> status = new AtomicReference<>(IndexLoadStatus.idle());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        // With the in-memory backend as primary, that backend loads the source itself.
+        if (properties.getLoader().isReindexOnStartup() && !properties.getBackend().isMemoryPrimary()) {
+            startReindex();
         }
     }
 
-    private void deleteIndex() throws IOException {
-        DeleteIndexRequest deleteRequest = DeleteIndexRequest.of(d -> d
-                .index(INDEX_NAME)
-                .ignoreUnavailable(true) // <-- ADD THIS LINE
-        );
-        DeleteIndexResponse deleteResponse = elasticsearchClient.indices().delete(deleteRequest);
-
-        // Check if the index was actually deleted (if it existed)
-        if (deleteResponse.acknowledged()) {
-            log.info("Index '{}' deleted successfully (or did not exist).", INDEX_NAME);
-        } else {
-            // This else block might be hit if acknowledge is false for other reasons,
-            // but for ignoreUnavailable=true, it primarily means it didn't exist or wasn't acknowledged.
-            log.warn("Index deletion for '{}' was not acknowledged.", INDEX_NAME);
+    /**
+     * Starts a reindex on the loader thread. Returns {@code false} if one is already running.
+     */
+    public boolean startReindex() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
         }
+        executor.execute(() -> {
+            try {
+                reindex();
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
     }
 
-    private void createIndex() throws IOException {
-        ClassPathResource mappingResource = new ClassPathResource("static/es-mappings.json");
-        ClassPathResource settingsResource = new ClassPathResource("static/es-settings.json");
+    public IndexLoadStatus getStatus() {
+        return status.get();
+    }
 
-        try (InputStream mappingIs = mappingResource.getInputStream();
-             InputStream settingsIs = settingsResource.getInputStream()) {
+    private void reindex() {
+        String indexName = null;
+        CourseSource source = null;
+        try {
+            log.info("Starting CourseDataLoader...");
+            source = selectedSource();
+            String previousIndex = indexManager.activeGeneration();
+            String resumableIndex = source.resumableIndex();
+            if (resumableIndex != null && indexManager.exists(resumableIndex)) {
+                indexName = resumableIndex;
+                log.info("Continuing interrupted load into '{}'", indexName);
+            } else {
+                indexName = indexManager.createGeneration();
+            }
+            status.set(status.get().loading(indexName));
 
-            CreateIndexRequest createRequest = CreateIndexRequest.of(c -> c
-                    .index(INDEX_NAME)
-                    .mappings(m -> m.withJson(mappingIs))
-                    .settings(s -> s.withJson(settingsIs))
-            );
+            IngestStats stats = bulkIndexCourses(indexName, source);
+            indexManager.optimizeAndWarm(indexName);
+            indexManager.publish(indexName);
+            source.completed();
+            status.set(status.get().ready(indexName, stats));
+            eventPublisher.publishEvent(new IndexGenerationEvent(CourseIndexManager.ALIAS, indexName, previousIndex));
 
-            CreateIndexResponse createResponse = elasticsearchClient.indices().create(createRequest);
-            if (createResponse.acknowledged()) {
-                log.info("Index '{}' created successfully.", INDEX_NAME);
-            } else {
-                log.error("Failed to create index '{}'.", INDEX_NAME);
+            indexManager.deleteOldGenerations(properties.getLoader().getRetainedGenerations());
+            log.info("CourseDataLoader finished successfully.");
+        } catch (Exception e) {
+            log.error("Error during data loading: {}", e.getMessage(), e);
+            status.set(status.get().failed(e.getMessage()));
+            if (source == null || indexName == null || !indexName.equals(source.resumableIndex())) {
+                discardGeneration(indexName); // keep generations a checkpoint can still resume into
             }
         }
     }
 
-    private void bulkIndexCourses(int numberOfCourses) throws IOException {
-        Faker faker = new Faker(new Locale("en", "IND"));
-        List<CourseDocument> courses = new ArrayList<>();
-        String[] categories = {"Data Science", "Programming", "Marketing", "Design", "Business", "Language"};
-        String[] types = {"LECTURE", "WORKSHOP", "SEMINAR", "ONLINE"};
-
-        // Corrected IntStream usage: range(start, end)
-        IntStream.range(0, numberOfCourses).forEach(i -> {
-            String title = faker.educator().course();
-            String description = faker.lorem().paragraph(3);
-            String category = categories[faker.random().nextInt(categories.length)];
-            String type = types[faker.random().nextInt(types.length)];
-            Integer minAge = faker.random().nextInt(14, 18);
-            Integer maxAge = faker.random().nextInt(60, 100);
-            Double price = faker.number().randomDouble(2, 500, 5000);
-
-            Date futureDate = faker.date().future(365, TimeUnit.DAYS);
-            LocalDateTime nextSessionDate = futureDate.toInstant()
-                                                        .atZone(ZoneId.systemDefault())
-                                                        .toLocalDateTime();
-
-         // Prepare suggestions from title. Split by one or more whitespace, filter empty, lowercase, and get distinct words.
-            String[] suggest = Arrays.stream(title.split("\\s+")) // Split by one or more whitespace characters (regex)
-                                    .filter(s -> !s.trim().isEmpty()) // Filter out empty strings after trimming whitespace
-                                    .map(String::toLowerCase)
-                                    .distinct() // remove duplicates from title words
-                                    .toArray(String[]::new);
-
-
-            CourseDocument course = CourseDocument.builder()
-                    .id(UUID.randomUUID().toString())
-                    .title(title)
-                    .description(description)
-                    .category(category)
-                    .type(type)
-                    .minAge(minAge)
-                    .maxAge(maxAge)
-                    .price(price)
-                    .nextSessionDate(nextSessionDate)
-                    .suggest(suggest)
-                    .build();
-            courses.add(course);
-        });
-
-        if (courses.isEmpty()) {
-            log.warn("No courses generated for bulk indexing.");
+    private void discardGeneration(String indexName) {
+        if (indexName == null) {
             return;
         }
+        try {
+            indexManager.deleteGeneration(indexName);
+        } catch (IOException e) {
+            log.warn("Could not delete incomplete generation '{}': {}", indexName, e.getMessage());
+        }
+    }
 
-        elasticsearchClient.bulk(b -> {
-            courses.forEach(course -> b.operations(op -> op.index(idx -> idx
-                    .index(INDEX_NAME)
-                    .id(course.getId())
-                    .document(course)
-            )));
-            return b;
-        });
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private IngestStats bulkIndexCourses(String indexName, CourseSource source) throws IOException {
+        CourseIndexManager.RefreshSettings previous = properties.getIngest().isDisableRefreshDuringLoad()
+                ? indexManager.disableRefresh(indexName) : null;
+        IngestStats stats;
+        try (CourseBulkIndexer indexer = new CourseBulkIndexer(elasticsearchClient, indexName, properties.getIngest(), meterRegistry)) {
+            source.feed(indexName, indexer);
+            stats = indexer.finish();
+        } finally {
+            if (previous != null) {
+                indexManager.restoreRefresh(indexName, previous);
+            }
+        }
+
+        if (stats.failed() > 0) {
+            throw new IOException("Bulk indexing into '" + indexName + "' finished with failures: " + stats);
+        }
+        log.info("Successfully indexed courses from '{}' into '{}': {}", source.name(), indexName, stats);
+        return stats;
+    }
 
-        log.info("Successfully indexed {} courses.", courses.size());
+    private CourseSource selectedSource() {
+        String name = properties.getLoader().getSource();
+        return sources.stream()
+                .filter(source -> source.name().equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown course-search.loader.source '" + name + "'"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,208 @@
+package com.undoschool.course_search.loader;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.core.search.CompletionContext;
+import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
+import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manages versioned {@code courses-v<timestamp>} indices behind the {@code courses} read alias.
+ * A generation is created, loaded and warmed while the alias keeps serving the previous one,
+ * then the alias is moved in a single atomic {@code _aliases} call.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CourseIndexManager {
+
+    public static final String ALIAS = "courses";
+    private static final String GENERATION_PREFIX = ALIAS + "-v";
+    // millisecond resolution, so a reindex retried within the same second still gets a new name; names of
+    // older second-resolution generations still sort before any later one
+    private static final DateTimeFormatter GENERATION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+    private static final int MAX_CREATE_ATTEMPTS = 3;
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    private final AtomicLong lastGenerationMillis = new AtomicLong();
+
+    public String createGeneration() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            String indexName = nextGenerationName();
+            try {
+                createIndex(indexName);
+                log.info("Created index generation '{}'", indexName);
+                return indexName;
+            } catch (ElasticsearchException e) {
+                // another instance created a generation in the same millisecond
+                if (attempt >= MAX_CREATE_ATTEMPTS || !"resource_already_exists_exception".equals(e.error().type())) {
+                    throw e;
+                }
+                log.warn("Index generation '{}' already exists, trying another name", indexName);
+            }
+        }
+    }
+
+    /**
+     * A generation name later than any this instance handed out before, even within the same millisecond.
+     */
+    String nextGenerationName() {
+        long millis = lastGenerationMillis.updateAndGet(last -> Math.max(System.currentTimeMillis(), last + 1));
+        return GENERATION_PREFIX + LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(GENERATION_FORMAT);
+    }
+
+    private void createIndex(String indexName) throws IOException {
+        ClassPathResource mappingResource = new ClassPathResource("static/es-mappings.json");
+        ClassPathResource settingsResource = new ClassPathResource("static/es-settings.json");
+
+        try (InputStream mappingIs = mappingResource.getInputStream();
+             InputStream settingsIs = settingsResource.getInputStream()) {
+
+            CreateIndexResponse createResponse = elasticsearchClient.indices().create(c -> c
+                    .index(indexName)
+                    .mappings(m -> m.withJson(mappingIs))
+                    .settings(s -> s.withJson(settingsIs))
+            );
+            if (!createResponse.acknowledged()) {
+                throw new IOException("Creation of index '" + indexName + "' was not acknowledged");
+            }
+        }
+    }
+
+    public record RefreshSettings(Time refreshInterval, String numberOfReplicas) {
+    }
+
+    /**
+     * Turns off refresh and replicas for the duration of a bulk load; segments are built once and copied
+     * to replicas afterwards instead of on every bulk request. Returns the settings to restore.
+     */
+    public RefreshSettings disableRefresh(String indexName) throws IOException {
+        IndexSettings current = elasticsearchClient.indices().getSettings(g -> g.index(indexName))
+                .get(indexName).settings();
+        IndexSettings index = current != null && current.index() != null ? current.index() : current;
+        RefreshSettings previous = new RefreshSettings(
+                index != null && index.refreshInterval() != null ? index.refreshInterval() : Time.of(t -> t.time("1s")),
+                index != null && index.numberOfReplicas() != null ? index.numberOfReplicas() : "1");
+
+        elasticsearchClient.indices().putSettings(p -> p
+                .index(indexName)
+                .settings(s -> s.refreshInterval(Time.of(t -> t.time("-1"))).numberOfReplicas("0"))
+        );
+        log.debug("Disabled refresh and replicas on '{}' (was {}/{})", indexName, previous.refreshInterval(), previous.numberOfReplicas());
+        return previous;
+    }
+
+    public void restoreRefresh(String indexName, RefreshSettings previous) throws IOException {
+        elasticsearchClient.indices().putSettings(p -> p
+                .index(indexName)
+                .settings(s -> s.refreshInterval(previous.refreshInterval()).numberOfReplicas(previous.numberOfReplicas()))
+        );
+        elasticsearchClient.indices().refresh(r -> r.index(indexName));
+    }
+
+    /**
+     * Merges a fully loaded, read-only generation down to one segment per shard and runs the default
+     * browse query and a suggest against it so the first user requests after the swap hit warm caches.
+     */
+    public void optimizeAndWarm(String indexName) throws IOException {
+        elasticsearchClient.indices().forcemerge(f -> f.index(indexName).maxNumSegments(1L));
+        elasticsearchClient.indices().refresh(r -> r.index(indexName));
+
+        elasticsearchClient.search(s -> s
+                .index(indexName)
+                .size(10)
+                .sort(so -> so.field(f -> f.field("nextSessionDate").order(SortOrder.Asc))), Void.class);
+        elasticsearchClient.search(s -> s
+                .index(indexName)
+                .size(0)
+                .suggest(sg -> sg.suggesters("warmup", c -> c
+                        .prefix("a")
+                        .completion(co -> co.field("suggest").size(10)
+                                .contexts(CourseSuggestTokens.SCOPE_CONTEXT, List.of(CompletionContext.of(cc -> cc
+                                        .context(ctx -> ctx.category(CourseSuggestTokens.scope(null, null))))))))), Void.class);
+        log.info("Force-merged and warmed '{}'", indexName);
+    }
+
+    /**
+     * Atomically points the {@code courses} alias at {@code indexName}, detaching it from every other
+     * generation. A legacy concrete {@code courses} index (from before aliases were used) is dropped in
+     * the same call, since an alias cannot share its name with an index.
+     */
+    public void publish(String indexName) throws IOException {
+        Map<String, IndexState> generations = listGenerations();
+        List<Action> actions = new ArrayList<>();
+
+        GetIndexResponse legacy = elasticsearchClient.indices().get(g -> g.index(ALIAS).ignoreUnavailable(true));
+        if (legacy.result().containsKey(ALIAS)) {
+            log.warn("Removing legacy concrete index '{}' to replace it with an alias", ALIAS);
+            actions.add(Action.of(a -> a.removeIndex(r -> r.index(ALIAS))));
+        }
+        generations.forEach((name, state) -> {
+            if (!name.equals(indexName) && state.aliases().containsKey(ALIAS)) {
+                actions.add(Action.of(a -> a.remove(r -> r.index(name).alias(ALIAS))));
+            }
+        });
+        actions.add(Action.of(a -> a.add(ad -> ad.index(indexName).alias(ALIAS))));
+
+        elasticsearchClient.indices().updateAliases(u -> u.actions(actions));
+        log.info("Alias '{}' now points to '{}'", ALIAS, indexName);
+    }
+
+    /**
+     * Deletes all generations except the newest {@code retained} ones and whatever the alias points to.
+     */
+    public void deleteOldGenerations(int retained) throws IOException {
+        Map<String, IndexState> generations = listGenerations();
+        List<String> stale = generations.keySet().stream()
+                .sorted(Comparator.reverseOrder())
+                .skip(Math.max(retained, 1))
+                .filter(name -> !generations.get(name).aliases().containsKey(ALIAS))
+                .toList();
+        if (!stale.isEmpty()) {
+            elasticsearchClient.indices().delete(d -> d.index(stale));
+            log.info("Deleted old index generations {}", stale);
+        }
+    }
+
+    public void deleteGeneration(String indexName) throws IOException {
+        elasticsearchClient.indices().delete(d -> d.index(indexName).ignoreUnavailable(true));
+    }
+
+    public boolean exists(String indexName) throws IOException {
+        return elasticsearchClient.indices().exists(e -> e.index(indexName)).value();
+    }
+
+    public String activeGeneration() throws IOException {
+        return listGenerations().entrySet().stream()
+                .filter(e -> e.getValue().aliases().containsKey(ALIAS))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Map<String, IndexState> listGenerations() throws IOException {
+        return elasticsearchClient.indices().get(g -> g.index(GENERATION_PREFIX + "*")).result();
+    }
+}
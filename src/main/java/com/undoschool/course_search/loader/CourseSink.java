@@ -0,0 +1,20 @@
+package com.undoschool.course_search.loader;
+
+import com.undoschool.course_search.document.CourseDocument;
+
+/**
+ * Receives the courses a {@link CourseSource} produces: the {@link CourseBulkIndexer} for Elasticsearch loads,
+ * or a plain collector when the in-memory search backend loads straight from the source.
+ */
+public interface CourseSink {
+
+    default void add(CourseDocument course) {
+        add(course, null);
+    }
+
+    /**
+     * Accepts a document; {@code onIndexed} (if any) runs once the sink has durably taken it. May be called
+     * from several threads.
+     */
+    void add(CourseDocument course, Runnable onIndexed);
+}
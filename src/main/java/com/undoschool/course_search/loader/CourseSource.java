@@ -0,0 +1,32 @@
+package com.undoschool.course_search.loader;
+
+import java.io.IOException;
+
+/**
+ * Where the loader gets its courses from; selected by {@code course-search.loader.source}.
+ */
+public interface CourseSource {
+
+    /**
+     * Name used in {@code course-search.loader.source}.
+     */
+    String name();
+
+    /**
+     * Hands every course to {@code sink}. Returns once all of them have been added, not acknowledged.
+     */
+    void feed(String indexName, CourseSink sink) throws IOException;
+
+    /**
+     * Index generation an interrupted load of this source can continue into, or {@code null} to start a new one.
+     */
+    default String resumableIndex() {
+        return null;
+    }
+
+    /**
+     * Called once the generation loaded from this source has been published.
+     */
+    default void completed() {
+    }
+}
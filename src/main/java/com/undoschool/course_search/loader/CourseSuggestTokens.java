@@ -0,0 +1,100 @@
+package com.undoschool.course_search.loader;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseCompletion;
+import com.undoschool.course_search.document.CourseDocument;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Derives the {@code suggest} completion inputs, weight and contexts of a course.
+ * <p>
+ * The inputs are the title and every word suffix of it that does not start with a stop word, so
+ * {@code "Introduction to Python Programming"} is found by typing {@code intro}, {@code python} or
+ * {@code python prog}. The weight is 1, plus up to {@code recency-weight} for a session starting within
+ * {@code recency-horizon} (more the sooner), plus {@code popularity-weight} per unit of {@code ln(1 + popularity)}.
+ * Weights are fixed when a course is indexed; a reindex recomputes their recency part.
+ * <p>
+ * Completion contexts of different names are alternatives, not constraints, so category and type share one
+ * {@code scope} context whose values are every combination of the course's category or {@link #ANY} with its
+ * type or {@link #ANY}; a request narrowed to both asks for {@code "<category>|<type>"}, one narrowed to
+ * neither for {@code "*|*"}.
+ */
+public final class CourseSuggestTokens {
+
+    /**
+     * Fields the inputs, weight or contexts are derived from.
+     */
+    public static final Set<String> SOURCE_FIELDS = Set.of("title", "category", "type", "nextSessionDate", "popularity");
+
+    public static final String SCOPE_CONTEXT = "scope";
+    public static final String ANY = "*";
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "for", "in", "of", "on", "the", "to", "with");
+
+    private CourseSuggestTokens() {
+    }
+
+    public static CourseCompletion completion(CourseDocument course, CourseSearchProperties.Suggest settings, LocalDateTime now) {
+        return new CourseCompletion(inputs(course.getTitle()), weight(course, settings, now),
+                Map.of(SCOPE_CONTEXT, scopes(course.getCategory(), course.getType())));
+    }
+
+    /**
+     * The {@code scope} value of a request narrowed to {@code category} and {@code type}, either of which may be
+     * {@code null} for any.
+     */
+    public static String scope(String category, String type) {
+        return (category != null ? category : ANY) + "|" + (type != null ? type : ANY);
+    }
+
+    /**
+     * The {@code scope} values a course with {@code category} and {@code type} is suggested under.
+     */
+    public static List<String> scopes(String category, String type) {
+        Set<String> scopes = new LinkedHashSet<>();
+        scopes.add(scope(null, null));
+        scopes.add(scope(category, null));
+        scopes.add(scope(null, type));
+        scopes.add(scope(category, type));
+        return List.copyOf(scopes);
+    }
+
+    public static List<String> inputs(String title) {
+        List<String> inputs = new ArrayList<>();
+        if (title == null || title.isBlank()) {
+            return inputs;
+        }
+        String[] words = title.trim().split("\\s+");
+        for (int i = 0; i < words.length; i++) {
+            if (i == 0 || !STOP_WORDS.contains(words[i].toLowerCase(Locale.ROOT))) {
+                String input = String.join(" ", List.of(words).subList(i, words.length));
+                if (!inputs.contains(input)) {
+                    inputs.add(input);
+                }
+            }
+        }
+        return inputs;
+    }
+
+    public static int weight(CourseDocument course, CourseSearchProperties.Suggest settings, LocalDateTime now) {
+        double weight = 1;
+        LocalDateTime session = course.getNextSessionDate();
+        long horizon = settings.getRecencyHorizon().toMinutes();
+        if (session != null && !session.isBefore(now) && horizon > 0) {
+            long until = Duration.between(now, session).toMinutes();
+            weight += settings.getRecencyWeight() * Math.max(0, 1 - (double) until / horizon);
+        }
+        if (course.getPopularity() != null && course.getPopularity() > 0) {
+            weight += settings.getPopularityWeight() * Math.log1p(course.getPopularity());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(weight));
+    }
+}
@@ -0,0 +1,74 @@
+package com.undoschool.course_search.loader;
+
+import com.github.javafaker.Faker;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Generates {@code course-search.loader.generated-courses} random courses with JavaFaker.
+ */
+@Component
+@RequiredArgsConstructor
+public class FakerCourseSource implements CourseSource {
+
+    private static final String[] CATEGORIES = {"Data Science", "Programming", "Marketing", "Design", "Business", "Language"};
+    private static final String[] TYPES = {"LECTURE", "WORKSHOP", "SEMINAR", "ONLINE"};
+
+    private final CourseSearchProperties properties;
+
+    @Override
+    public String name() {
+        return "faker";
+    }
+
+    @Override
+    public void feed(String indexName, CourseSink sink) {
+        Faker faker = new Faker(new Locale("en", "IND"));
+        // Documents are generated lazily and handed straight to the sink; nothing is held in memory.
+        Stream.generate(() -> generateCourse(faker))
+                .limit(properties.getLoader().getGeneratedCourses())
+                .forEach(sink::add);
+    }
+
+    public CourseDocument generateCourse(Faker faker) {
+        String title = faker.educator().course();
+        String description = faker.lorem().paragraph(3);
+        String category = CATEGORIES[faker.random().nextInt(CATEGORIES.length)];
+        String type = TYPES[faker.random().nextInt(TYPES.length)];
+        Integer minAge = faker.random().nextInt(14, 18);
+        Integer maxAge = faker.random().nextInt(60, 100);
+        Double price = faker.number().randomDouble(2, 500, 5000);
+        // Skewed towards small numbers: a few courses are far more popular than the rest.
+        Integer popularity = (int) (1000 * Math.pow(faker.random().nextDouble(), 4));
+
+        Date futureDate = faker.date().future(365, TimeUnit.DAYS);
+        LocalDateTime nextSessionDate = futureDate.toInstant()
+                                                    .atZone(ZoneId.systemDefault())
+                                                    .toLocalDateTime();
+
+        CourseDocument course = CourseDocument.builder()
+                .id(UUID.randomUUID().toString())
+                .title(title)
+                .description(description)
+                .category(category)
+                .type(type)
+                .minAge(minAge)
+                .maxAge(maxAge)
+                .price(price)
+                .popularity(popularity)
+                .nextSessionDate(nextSessionDate)
+                .build();
+        course.setSuggest(CourseSuggestTokens.completion(course, properties.getSuggest(), LocalDateTime.now()));
+        return course;
+    }
+}
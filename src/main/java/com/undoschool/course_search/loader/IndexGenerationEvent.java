@@ -0,0 +1,8 @@
+package com.undoschool.course_search.loader;
+
+/**
+ * Published once the {@code courses} alias has been moved to a freshly loaded generation.
+ * Anything that caches data derived from the index should drop it when this arrives.
+ */
+public record IndexGenerationEvent(String alias, String index, String previousIndex) {
+}
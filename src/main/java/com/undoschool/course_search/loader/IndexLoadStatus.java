@@ -0,0 +1,30 @@
+package com.undoschool.course_search.loader;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of the loader's progress, served by {@code GET /api/index/status}.
+ */
+public record IndexLoadStatus(State state, String activeIndex, String buildingIndex,
+                              Instant startedAt, Instant finishedAt, IngestStats lastLoad, String error) {
+
+    public enum State {
+        IDLE, LOADING, READY, FAILED
+    }
+
+    static IndexLoadStatus idle() {
+        return new IndexLoadStatus(State.IDLE, null, null, null, null, null, null);
+    }
+
+    IndexLoadStatus loading(String buildingIndex) {
+        return new IndexLoadStatus(State.LOADING, activeIndex, buildingIndex, Instant.now(), null, lastLoad, null);
+    }
+
+    IndexLoadStatus ready(String index, IngestStats stats) {
+        return new IndexLoadStatus(State.READY, index, null, startedAt, Instant.now(), stats, null);
+    }
+
+    IndexLoadStatus failed(String message) {
+        return new IndexLoadStatus(State.FAILED, activeIndex, null, startedAt, Instant.now(), lastLoad, message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.undoschool.course_search.loader;
+
+/**
+ * Durable progress of a file load: the first {@code documents} records ({@code byteOffset} bytes,
+ * CRC32 {@code checksum}) of {@code location} are acknowledged in {@code index}.
+ */
+public record IngestCheckpoint(String location, String index, long documents, long byteOffset, long checksum) {
+}
@@ -0,0 +1,21 @@
+package com.undoschool.course_search.loader;
+
+/**
+ * Totals of a bulk load, as reported by {@link CourseBulkIndexer}.
+ */
+public record IngestStats(long indexed, long failed, long retried, long bytes, long requests, long elapsedNanos) {
+
+    public double docsPerSecond() {
+        return elapsedNanos > 0 ? indexed * 1_000_000_000d / elapsedNanos : 0;
+    }
+
+    public double bytesPerSecond() {
+        return elapsedNanos > 0 ? bytes * 1_000_000_000d / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d indexed, %d failed, %d retried in %d bulk requests, %.0f docs/s, %.1f KB/s",
+                indexed, failed, retried, requests, docsPerSecond(), bytesPerSecond() / 1024);
+    }
+}
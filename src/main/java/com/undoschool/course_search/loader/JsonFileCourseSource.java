@@ -0,0 +1,269 @@
+package com.undoschool.course_search.loader;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams courses from a JSON array (same shape as {@code sample_courses.json}) at
+ * {@code course-search.loader.file.location}, which may be a {@code classpath:} or {@code file:} location.
+ * <p>
+ * The array is read one record at a time with a {@link JsonParser}, so memory does not depend on file size;
+ * records are mapped to {@link CourseDocument}s on a worker pool. Every {@code checkpoint-interval} records
+ * whose documents have all been acknowledged, the record count, byte offset and CRC32 of the bytes read so
+ * far are written to {@code checkpoint-path}. An interrupted load then resumes into the same index: the
+ * acknowledged prefix is skipped without mapping, and its checksum is verified against the checkpoint.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JsonFileCourseSource implements CourseSource {
+
+    private final CourseSearchProperties properties;
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false); // feeds carry extra fields such as gradeRange
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public String resumableIndex() {
+        IngestCheckpoint checkpoint = readCheckpoint();
+        return checkpoint != null ? checkpoint.index() : null;
+    }
+
+    @Override
+    public void completed() {
+        try {
+            Files.deleteIfExists(checkpointPath());
+        } catch (IOException e) {
+            log.warn("Could not delete checkpoint {}: {}", checkpointPath(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void feed(String indexName, CourseSink sink) throws IOException {
+        CourseSearchProperties.FileSource settings = properties.getLoader().getFile();
+        Resource resource = resourceLoader.getResource(settings.getLocation());
+        IngestCheckpoint resumeFrom = readCheckpoint();
+        if (resumeFrom != null && !resumeFrom.index().equals(indexName)) {
+            resumeFrom = null;
+        }
+        long skip = resumeFrom != null ? resumeFrom.documents() : 0;
+        CheckpointTracker tracker = new CheckpointTracker(indexName, settings.getCheckpointInterval(), skip);
+
+        int threads = settings.getMappingThreads();
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Bounded queue + caller-runs: when mapping falls behind, the parser thread maps too instead of reading ahead.
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 64), r -> {
+                    Thread thread = new Thread(r, "course-mapper-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        AtomicLong skipped = new AtomicLong();
+
+        try (ChecksumInputStream in = new ChecksumInputStream(resource.getInputStream());
+             JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException(settings.getLocation() + " is not a JSON array of courses");
+            }
+            if (skip > 0) {
+                log.info("Resuming load of {} into '{}' after {} records", settings.getLocation(), indexName, skip);
+            }
+
+            long ordinal = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IOException(settings.getLocation() + " ends after " + ordinal + " records without closing its array");
+                }
+                if (ordinal < skip) {
+                    parser.skipChildren();
+                } else if (token != JsonToken.START_OBJECT) {
+                    // like any other malformed record: counted, logged and passed over, not the end of the load
+                    parser.skipChildren();
+                    skipped.incrementAndGet();
+                    log.warn("Skipping course record {} of {}: expected an object but found {}", ordinal, settings.getLocation(), token);
+                } else {
+                    JsonNode record = parser.readValueAsTree();
+                    long recordOrdinal = ordinal;
+                    tracker.submitted(recordOrdinal);
+                    workers.execute(() -> {
+                        try {
+                            sink.add(toDocument(record, recordOrdinal), () -> tracker.indexed(recordOrdinal));
+                        } catch (Exception e) {
+                            skipped.incrementAndGet();
+                            log.warn("Skipping course record {} of {}: {}", recordOrdinal, settings.getLocation(), e.getMessage());
+                            tracker.indexed(recordOrdinal);
+                        }
+                    });
+                }
+                ordinal++;
+                long offset = parser.currentLocation().getByteOffset();
+                in.advanceTo(offset);
+
+                if (ordinal == skip) {
+                    verifyResumePoint(resumeFrom, offset, in.checksum());
+                } else if (ordinal > skip && ordinal % settings.getCheckpointInterval() == 0) {
+                    tracker.seal(ordinal, offset, in.checksum());
+                }
+            }
+            if (ordinal < skip) {
+                verifyResumePoint(resumeFrom, -1, -1);
+            }
+            if (ordinal > skip && ordinal % settings.getCheckpointInterval() != 0) {
+                tracker.seal(ordinal, parser.currentLocation().getByteOffset(), in.checksum());
+            }
+        } finally {
+            workers.shutdown();
+            awaitTermination(workers);
+        }
+        if (skipped.get() > 0) {
+            log.warn("Skipped {} malformed course records in {}", skipped.get(), settings.getLocation());
+        }
+    }
+
+    private CourseDocument toDocument(JsonNode record, long ordinal) throws IOException {
+        CourseDocument course = objectMapper.treeToValue(record, CourseDocument.class);
+        if (course.getId() == null || course.getId().isBlank()) {
+            // Stable across runs, so a resumed or repeated load overwrites instead of duplicating.
+            String key = properties.getLoader().getFile().getLocation() + "#" + ordinal;
+            course.setId(UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString());
+        }
+        course.setSuggest(CourseSuggestTokens.completion(course, properties.getSuggest(), LocalDateTime.now()));
+        return course;
+    }
+
+    private void verifyResumePoint(IngestCheckpoint checkpoint, long offset, long checksum) throws IOException {
+        if (checkpoint.byteOffset() != offset || checkpoint.checksum() != checksum) {
+            completed();
+            throw new IOException("File " + checkpoint.location() + " changed since the checkpoint at record "
+                    + checkpoint.documents() + "; restart the load from scratch");
+        }
+    }
+
+    private static void awaitTermination(ThreadPoolExecutor workers) throws IOException {
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while mapping course records", e);
+        }
+    }
+
+    private Path checkpointPath() {
+        return Path.of(properties.getLoader().getFile().getCheckpointPath());
+    }
+
+    private IngestCheckpoint readCheckpoint() {
+        CourseSearchProperties.FileSource settings = properties.getLoader().getFile();
+        Path path = checkpointPath();
+        if (!settings.isResume() || !Files.exists(path)) {
+            return null;
+        }
+        try {
+            IngestCheckpoint checkpoint = objectMapper.readValue(path.toFile(), IngestCheckpoint.class);
+            return settings.getLocation().equals(checkpoint.location()) ? checkpoint : null;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable checkpoint {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCheckpoint(IngestCheckpoint checkpoint) {
+        Path path = checkpointPath().toAbsolutePath();
+        try {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), checkpoint);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Checkpoint: {} records of {} acknowledged", checkpoint.documents(), checkpoint.location());
+        } catch (IOException e) {
+            log.warn("Could not write checkpoint {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Groups records into chunks of {@code interval} and persists a chunk's checkpoint once it and every
+     * chunk before it have been fully acknowledged, since bulk responses come back out of order.
+     */
+    private class CheckpointTracker {
+
+        private final String indexName;
+        private final int interval;
+        private final Map<Long, Chunk> chunks = new HashMap<>();
+        private long nextChunk; // oldest chunk whose checkpoint has not been persisted yet
+
+        private static class Chunk {
+            int remaining;
+            IngestCheckpoint checkpoint;
+        }
+
+        CheckpointTracker(String indexName, int interval, long resumedDocuments) {
+            this.indexName = indexName;
+            this.interval = interval;
+            this.nextChunk = resumedDocuments / interval;
+        }
+
+        synchronized void submitted(long ordinal) {
+            chunk(ordinal).remaining++;
+        }
+
+        synchronized void indexed(long ordinal) {
+            chunk(ordinal).remaining--;
+            persistCompleted();
+        }
+
+        synchronized void seal(long documents, long byteOffset, long checksum) {
+            chunk(documents - 1).checkpoint = new IngestCheckpoint(
+                    properties.getLoader().getFile().getLocation(), indexName, documents, byteOffset, checksum);
+            persistCompleted();
+        }
+
+        private Chunk chunk(long ordinal) {
+            return chunks.computeIfAbsent(ordinal / interval, k -> new Chunk());
+        }
+
+        private void persistCompleted() {
+            IngestCheckpoint latest = null;
+            Chunk chunk;
+            while ((chunk = chunks.get(nextChunk)) != null && chunk.checkpoint != null && chunk.remaining == 0) {
+                latest = chunk.checkpoint;
+                chunks.remove(nextChunk++);
+            }
+            if (latest != null) {
+                writeCheckpoint(latest);
+            }
+        }
+    }
+}
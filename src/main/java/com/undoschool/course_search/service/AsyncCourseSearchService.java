@@ -0,0 +1,96 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking counterpart of {@link CourseSearchService#searchCourses}, used when
+ * {@code course-search.execution.mode=async}. Page searches go through {@link ElasticsearchAsyncClient}
+ * behind the {@link ElasticsearchBulkhead}, so no thread waits on Elasticsearch I/O. Cursor walks take
+ * several dependent round trips and run on the blocking path on the application task executor
+ * (virtual threads when {@code spring.threads.virtual.enabled} is set on Java 21+). The in-memory fallback
+ * of the blocking path is not used here; with the in-memory backend as primary, searches complete inline.
+ */
+@Service
+public class AsyncCourseSearchService {
+
+    private final CourseSearchService courseSearchService;
+    private final ElasticsearchCourseSearchBackend elasticsearchBackend;
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+    private final SearchResultCache searchResultCache;
+    private final ElasticsearchBulkhead bulkhead;
+    private final SearchMetrics metrics;
+    private final Executor offloadExecutor;
+
+    public AsyncCourseSearchService(CourseSearchService courseSearchService,
+                                    ElasticsearchCourseSearchBackend elasticsearchBackend,
+                                    ElasticsearchAsyncClient elasticsearchAsyncClient,
+                                    SearchResultCache searchResultCache,
+                                    ElasticsearchBulkhead bulkhead,
+                                    SearchMetrics metrics,
+                                    @Qualifier("applicationTaskExecutor") Executor offloadExecutor) {
+        this.courseSearchService = courseSearchService;
+        this.elasticsearchBackend = elasticsearchBackend;
+        this.elasticsearchAsyncClient = elasticsearchAsyncClient;
+        this.searchResultCache = searchResultCache;
+        this.bulkhead = bulkhead;
+        this.metrics = metrics;
+        this.offloadExecutor = offloadExecutor;
+    }
+
+    public CompletableFuture<Map<String, Object>> searchCourses(CourseSearchCriteria criteria) {
+        long deadlineNanos = bulkhead.deadlineFromNow(); // one deadline for every call the request makes
+        CourseSearchCriteria normalized;
+        try {
+            normalized = courseSearchService.normalize(criteria);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (courseSearchService.isMemoryPrimary()) {
+            try {
+                return CompletableFuture.completedFuture(courseSearchService.searchCourses(normalized)); // no I/O to wait on
+            } catch (IOException | RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        if (courseSearchService.requiresCursorWalk(normalized)) {
+            // the permit is held until the walk returns, even after its deadline has failed the request
+            return bulkhead.callBlocking(() -> courseSearchService.searchCourses(normalized), offloadExecutor);
+        }
+        return searchResultCache.getAsync(normalized, key -> executeSearch(key, deadlineNanos));
+    }
+
+    /**
+     * Runs the exact search and, if it matched nothing, the fuzzy fallback, both within {@code deadlineNanos}:
+     * the fallback only gets what the exact pass left of the request's deadline.
+     */
+    private CompletableFuture<Map<String, Object>> executeSearch(CourseSearchCriteria criteria, long deadlineNanos) {
+        return searchPage(criteria, false, deadlineNanos)
+                .thenCompose(response -> elasticsearchBackend.needsFuzzyFallback(criteria, response)
+                        ? searchPage(criteria, true, deadlineNanos) : CompletableFuture.completedFuture(response))
+                .thenApply(response -> elasticsearchBackend.toResult(criteria, response, null));
+    }
+
+    private CompletableFuture<SearchResponse<CourseSummary>> searchPage(CourseSearchCriteria criteria, boolean fuzzy,
+                                                                       long deadlineNanos) {
+        return bulkhead.call(() -> {
+            long stage = metrics.startStage();
+            SearchRequest request = elasticsearchBackend.buildPageRequest(criteria, fuzzy);
+            metrics.recordBuild(stage);
+            long start = System.nanoTime();
+            CompletableFuture<SearchResponse<CourseSummary>> call = elasticsearchAsyncClient.search(request, CourseSummary.class);
+            call.thenAccept(response -> metrics.recordElasticsearch(fuzzy ? "page_fuzzy" : "page", start, response)); // call itself stays cancellable
+            return call;
+        }, deadlineNanos);
+    }
+}
@@ -0,0 +1,66 @@
+package com.undoschool.course_search.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the circuit opens
+ * and {@link #allowRequest()} refuses calls for {@code openDuration}; then a single probe is let through,
+ * and its outcome closes the circuit again or re-opens it for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong(CLOSED);
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * {@code true} while closed, and for exactly one caller once the open period has elapsed.
+     */
+    public boolean allowRequest() {
+        long opened = openedAt.get();
+        if (opened == CLOSED) {
+            return true;
+        }
+        long now = nanoClock.getAsLong();
+        // Claiming the probe restarts the open period, so concurrent callers keep being refused until it reports back.
+        return now - opened >= openNanos && openedAt.compareAndSet(opened, now);
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        openedAt.set(CLOSED);
+    }
+
+    public void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt.set(nanoClock.getAsLong());
+        }
+    }
+
+    public State state() {
+        long opened = openedAt.get();
+        if (opened == CLOSED) {
+            return State.CLOSED;
+        }
+        return nanoClock.getAsLong() - opened >= openNanos ? State.HALF_OPEN : State.OPEN;
+    }
+}
@@ -0,0 +1,111 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet aggregations computed alongside search hits.
+ * <p>
+ * {@code category} and {@code type} are multi-select facets: when facets are requested their filters move
+ * from the query to {@code post_filter}, so they narrow the hits but not the aggregations. Each of the two
+ * terms facets is then filtered by the <em>other</em> one only, which keeps the counts of sibling values
+ * visible after a value has been selected. The price and age histograms honour both selections.
+ */
+final class CourseFacets {
+
+    private static final String VALUES = "values";
+
+    private CourseFacets() {
+    }
+
+    static Query categoryFilter(CourseSearchCriteria criteria) {
+        return criteria.getCategory() == null ? null
+                : Query.of(q -> q.term(t -> t.field("category").value(criteria.getCategory())));
+    }
+
+    static Query typeFilter(CourseSearchCriteria criteria) {
+        return criteria.getType() == null ? null
+                : Query.of(q -> q.term(t -> t.field("type").value(criteria.getType())));
+    }
+
+    /**
+     * The {@code post_filter} for faceted requests, or {@code null} when neither facet is selected.
+     */
+    static Query postFilter(CourseSearchCriteria criteria) {
+        List<Query> filters = selected(categoryFilter(criteria), typeFilter(criteria));
+        return filters.isEmpty() ? null : Query.of(q -> q.bool(b -> b.filter(filters)));
+    }
+
+    static Map<String, Aggregation> aggregations(CourseSearchCriteria criteria, CourseSearchProperties.Facets settings) {
+        Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+        aggregations.put("category", filtered(selected(typeFilter(criteria)),
+                Aggregation.of(a -> a.terms(t -> t.field("category").size(settings.getTermsSize())))));
+        aggregations.put("type", filtered(selected(categoryFilter(criteria)),
+                Aggregation.of(a -> a.terms(t -> t.field("type").size(settings.getTermsSize())))));
+        List<Query> both = selected(categoryFilter(criteria), typeFilter(criteria));
+        aggregations.put("price", filtered(both,
+                Aggregation.of(a -> a.histogram(h -> h.field("price").interval(settings.getPriceInterval()).minDocCount(1)))));
+        aggregations.put("minAge", filtered(both,
+                Aggregation.of(a -> a.histogram(h -> h.field("minAge").interval(settings.getAgeInterval()).minDocCount(1)))));
+        return aggregations;
+    }
+
+    /**
+     * {@code {category: [{key, count}], type: [...], price: [{from, count}], minAge: [...]}}
+     */
+    static Map<String, Object> toFacets(Map<String, Aggregate> aggregations) {
+        Map<String, Object> facets = new LinkedHashMap<>();
+        for (String name : List.of("category", "type")) {
+            Aggregate values = values(aggregations, name);
+            if (values != null && values.isSterms()) {
+                List<Map<String, Object>> buckets = new ArrayList<>();
+                for (StringTermsBucket bucket : values.sterms().buckets().array()) {
+                    buckets.add(Map.of("key", bucket.key().stringValue(), "count", bucket.docCount()));
+                }
+                facets.put(name, buckets);
+            }
+        }
+        for (String name : List.of("price", "minAge")) {
+            Aggregate values = values(aggregations, name);
+            if (values != null && values.isHistogram()) {
+                List<Map<String, Object>> buckets = new ArrayList<>();
+                for (HistogramBucket bucket : values.histogram().buckets().array()) {
+                    buckets.add(Map.of("from", bucket.key(), "count", bucket.docCount()));
+                }
+                facets.put(name, buckets);
+            }
+        }
+        return facets;
+    }
+
+    private static Aggregate values(Map<String, Aggregate> aggregations, String name) {
+        Aggregate facet = aggregations.get(name);
+        return facet != null && facet.isFilter() ? facet.filter().aggregations().get(VALUES) : null;
+    }
+
+    private static Aggregation filtered(List<Query> filters, Aggregation values) {
+        return Aggregation.of(a -> a
+                .filter(f -> f.bool(b -> b.filter(filters)))
+                .aggregations(VALUES, values));
+    }
+
+    private static List<Query> selected(Query... filters) {
+        List<Query> selected = new ArrayList<>();
+        for (Query filter : filters) {
+            if (filter != null) {
+                selected.add(filter);
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,55 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.loader.CourseDataLoader;
+import com.undoschool.course_search.loader.CourseIndexManager;
+import com.undoschool.course_search.loader.IndexLoadStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * {@code courseIndex} health, part of the {@code /actuator/health/readiness} group: up once the primary backend
+ * has courses to serve. With Elasticsearch that is as soon as the {@code courses} alias points at a generation
+ * (a previous run's while the startup reindex is still loading); with {@code backend.primary=memory}, once the
+ * in-memory index and its suggestions are built. Liveness never depends on it.
+ */
+@Component
+@RequiredArgsConstructor
+public class CourseIndexHealthIndicator implements HealthIndicator {
+
+    private final CourseDataLoader courseDataLoader;
+    private final CourseIndexManager indexManager;
+    private final InMemoryCourseSearchBackend memoryBackend;
+    private final CourseSuggestService courseSuggestService;
+    private final CourseSearchProperties properties;
+
+    private volatile String servedGeneration; // found behind the alias once, so later probes need no request
+
+    @Override
+    public Health health() {
+        if (properties.getBackend().isMemoryPrimary()) {
+            boolean suggestionsBuilt = !properties.getSuggest().isInMemory() || courseSuggestService.isWarm();
+            Health.Builder health = memoryBackend.isReady() && suggestionsBuilt ? Health.up() : Health.outOfService();
+            return health.withDetail("backend", "memory").build();
+        }
+
+        IndexLoadStatus status = courseDataLoader.getStatus();
+        String generation = status.activeIndex() != null ? status.activeIndex() : servedGeneration;
+        if (generation == null) {
+            try {
+                generation = indexManager.activeGeneration();
+                servedGeneration = generation;
+            } catch (IOException | ElasticsearchException e) {
+                Health.Builder health = memoryBackend.isReady() ? Health.up().withDetail("degraded", true) : Health.outOfService();
+                return health.withDetail("loader", status.state()).withException(e).build();
+            }
+        }
+        Health.Builder health = generation != null ? Health.up().withDetail("index", generation) : Health.outOfService();
+        return health.withDetail("loader", status.state()).build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.undoschool.course_search.document.CourseDocument;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads every course of an index for the in-process copies built from Elasticsearch (suggestion tries and the
+ * fallback index). The scan runs in a point-in-time and pages on {@code _shard_doc}, which unlike {@code _doc}
+ * is unique across shards, so each course is read exactly once even if the index is refreshed meanwhile.
+ */
+@Slf4j
+final class CourseIndexScan {
+
+    static final int PAGE_SIZE = 1000;
+
+    private CourseIndexScan() {
+    }
+
+    /**
+     * Hands every course of {@code index} to {@code consumer} and returns how many there were.
+     *
+     * @param includes {@code _source} fields to read, or {@code null} for the whole document
+     */
+    static long scan(ElasticsearchClient client, String index, List<String> includes, Duration keepAlive,
+                     Consumer<CourseDocument> consumer) throws IOException {
+        Time alive = Time.of(t -> t.time(keepAlive.toSeconds() + "s"));
+        String pitId = client.openPointInTime(o -> o.index(index).keepAlive(alive)).id();
+        try {
+            long courses = 0;
+            List<FieldValue> searchAfter = null;
+            while (true) {
+                String pit = pitId;
+                List<FieldValue> after = searchAfter;
+                SearchResponse<CourseDocument> response = client.search(s -> {
+                    s.pit(p -> p.id(pit).keepAlive(alive))
+                            .size(PAGE_SIZE)
+                            .trackTotalHits(t -> t.enabled(false))
+                            .sort(so -> so.field(f -> f.field("_shard_doc")));
+                    if (includes != null) {
+                        s.source(src -> src.filter(f -> f.includes(includes)));
+                    }
+                    if (after != null) {
+                        s.searchAfter(after);
+                    }
+                    return s;
+                }, CourseDocument.class);
+                pitId = response.pitId() != null ? response.pitId() : pitId;
+
+                List<Hit<CourseDocument>> hits = response.hits().hits();
+                for (Hit<CourseDocument> hit : hits) {
+                    if (hit.source() != null) {
+                        consumer.accept(hit.source());
+                        courses++;
+                    }
+                }
+                if (hits.size() < PAGE_SIZE) {
+                    return courses;
+                }
+                searchAfter = hits.get(hits.size() - 1).sort();
+            }
+        } finally {
+            String pit = pitId;
+            try {
+                client.closePointInTime(c -> c.id(pit));
+            } catch (IOException | ElasticsearchException e) {
+                log.debug("Could not close point-in-time of scan over '{}': {}", index, e.getMessage()); // it expires on its own
+            }
+        }
+    }
+}
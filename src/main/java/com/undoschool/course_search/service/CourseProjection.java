@@ -0,0 +1,84 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Which course fields a search returns, and the in-process counterpart of {@code _source} includes for
+ * backends that hold whole documents.
+ */
+final class CourseProjection {
+
+    /**
+     * Names a request may list in {@code fields}: the {@link CourseSummary} properties.
+     */
+    static final List<String> FIELDS = List.of("id", "title", "description", "category", "type", "minAge", "maxAge",
+            "price", "nextSessionDate");
+
+    private CourseProjection() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code fields} names anything but {@link #FIELDS}, wildcards included;
+     *                                  {@code _source} filtering would otherwise return internal fields such as
+     *                                  {@code suggest} to the streaming path
+     */
+    static void checkFields(List<String> fields) {
+        if (fields == null) {
+            return;
+        }
+        for (String field : fields) {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "'; fields are " + String.join(",", FIELDS));
+            }
+        }
+    }
+
+    /**
+     * The requested {@code fields} of normalized criteria, or the configured list-view fields.
+     */
+    static List<String> fields(CourseSearchCriteria criteria, CourseSearchProperties.Results results) {
+        return criteria.getFields() != null ? criteria.getFields() : results.getSourceIncludes();
+    }
+
+    /**
+     * A {@link CourseSummary} of {@code course} with only {@code fields} set; no fields means all of them.
+     */
+    static CourseSummary project(CourseDocument course, Collection<String> fields) {
+        boolean all = fields == null || fields.isEmpty();
+        CourseSummary summary = new CourseSummary();
+        if (all || fields.contains("id")) {
+            summary.setId(course.getId());
+        }
+        if (all || fields.contains("title")) {
+            summary.setTitle(course.getTitle());
+        }
+        if (all || fields.contains("description")) {
+            summary.setDescription(course.getDescription());
+        }
+        if (all || fields.contains("category")) {
+            summary.setCategory(course.getCategory());
+        }
+        if (all || fields.contains("type")) {
+            summary.setType(course.getType());
+        }
+        if (all || fields.contains("minAge")) {
+            summary.setMinAge(course.getMinAge());
+        }
+        if (all || fields.contains("maxAge")) {
+            summary.setMaxAge(course.getMaxAge());
+        }
+        if (all || fields.contains("price")) {
+            summary.setPrice(course.getPrice());
+        }
+        if (all || fields.contains("nextSessionDate")) {
+            summary.setNextSessionDate(course.getNextSessionDate());
+        }
+        return summary;
+    }
+}
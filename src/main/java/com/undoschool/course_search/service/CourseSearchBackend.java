@@ -0,0 +1,95 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Executes course searches for {@link CourseSearchService}. Criteria passed in are already
+ * {@link CourseSearchCriteria#normalized normalized}; results have the shape of the {@code /api/search}
+ * response and are built with {@link #result}.
+ */
+public interface CourseSearchBackend {
+
+    String name();
+
+    /**
+     * {@code {courses, total, totalLabel, cursor?, facets?}} for one page.
+     *
+     * @throws IllegalArgumentException if the criteria carry a cursor this backend cannot accept
+     */
+    Map<String, Object> search(CourseSearchCriteria criteria) throws IOException;
+
+    /**
+     * {@code {total, totalLabel, facets}} without hits.
+     */
+    Map<String, Object> facets(CourseSearchCriteria criteria) throws IOException;
+
+    /**
+     * One entry of {@link #searchAll}: the page as {@link #search} returns it, or the error it failed with,
+     * and how long the backend spent on it.
+     */
+    record BatchEntry(Map<String, Object> result, Exception error, long tookMillis) {
+
+        static BatchEntry failed(Exception error) {
+            return new BatchEntry(null, error, 0);
+        }
+    }
+
+    /**
+     * Pages for several normalized criteria, in order; an entry that fails does not fail the others. The
+     * default runs them one by one.
+     *
+     * @throws IOException if the backend could not be reached at all
+     */
+    default List<BatchEntry> searchAll(List<CourseSearchCriteria> criteria) throws IOException {
+        List<BatchEntry> entries = new ArrayList<>(criteria.size());
+        for (CourseSearchCriteria entry : criteria) {
+            long start = System.nanoTime();
+            try {
+                Map<String, Object> result = search(entry);
+                entries.add(new BatchEntry(result, null, (System.nanoTime() - start) / 1_000_000));
+            } catch (RuntimeException e) {
+                entries.add(BatchEntry.failed(e));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @param totalIsLowerBound counting stopped at {@code results.track-total-hits-up-to}
+     */
+    static Map<String, Object> result(List<CourseSummary> courses, long totalHits, boolean totalIsLowerBound,
+                                      String nextCursor, Map<String, Object> facets) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("courses", courses);
+        putTotal(result, totalHits, totalIsLowerBound);
+        if (nextCursor != null) {
+            result.put("cursor", nextCursor);
+        }
+        if (facets != null) {
+            result.put("facets", facets);
+        }
+        return Collections.unmodifiableMap(result); // shared through the cache
+    }
+
+    /**
+     * Adds {@code total} and a display form of it, {@code totalLabel}: {@code "1,234"}, or {@code "10,000+"}
+     * when the count is a lower bound.
+     */
+    static void putTotal(Map<String, Object> result, long totalHits, boolean totalIsLowerBound) {
+        result.put("total", totalHits);
+        result.put("totalLabel", totalLabel(totalHits, totalIsLowerBound));
+    }
+
+    static String totalLabel(long totalHits, boolean totalIsLowerBound) {
+        return String.format(Locale.ROOT, "%,d", totalHits) + (totalIsLowerBound ? "+" : "");
+    }
+}
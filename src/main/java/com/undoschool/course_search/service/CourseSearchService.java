@@ -1,143 +1,232 @@
 package com.undoschool.course_search.service;
 
-import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.SearchRequest;
-import co.elastic.clients.elasticsearch.core.SearchResponse;
-import co.elastic.clients.elasticsearch.core.search.CompletionSuggester; // Ensure this is imported correctly
-import co.elastic.clients.elasticsearch._types.query_dsl.Query;
-import co.elastic.clients.elasticsearch._types.SortOptions;
-import co.elastic.clients.elasticsearch._types.SortOrder;
-import co.elastic.clients.json.JsonData;
-import com.undoschool.course_search.document.CourseDocument;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import com.undoschool.course_search.config.CourseSearchProperties;
 import com.undoschool.course_search.dto.CourseSearchCriteria;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Map;
-import java.util.stream.Collectors;
-
+import java.util.function.UnaryOperator;
+
+/**
+ * Entry point for {@code /api/search}: normalizes criteria, caches pages, and runs them on the configured
+ * {@link CourseSearchBackend}. With Elasticsearch as the primary backend and {@code backend.fallback} on,
+ * calls go through a {@link CircuitBreaker}; while Elasticsearch is failing or the circuit is open, searches
+ * are answered from the {@link InMemoryCourseSearchBackend} copy of the live generation and marked
+ * {@code degraded} (such results are not cached).
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CourseSearchService {
 
-    private final ElasticsearchClient elasticsearchClient;
-    private static final String INDEX_NAME = "courses";
     private static final int DEFAULT_PAGE_SIZE = 10;
     private static final int DEFAULT_PAGE_NUMBER = 0;
 
+    @FunctionalInterface
+    private interface BackendCall<T> {
+        T execute(CourseSearchBackend backend) throws IOException;
+    }
+
+    private final ElasticsearchCourseSearchBackend elasticsearchBackend;
+    private final InMemoryCourseSearchBackend memoryBackend;
+    private final SearchResultCache searchResultCache;
+    private final CourseSearchProperties properties;
+    private final SearchMetrics metrics;
+    private final CircuitBreaker circuitBreaker;
+
+    public CourseSearchService(ElasticsearchCourseSearchBackend elasticsearchBackend,
+                               InMemoryCourseSearchBackend memoryBackend,
+                               SearchResultCache searchResultCache,
+                               CourseSearchProperties properties,
+                               SearchMetrics metrics) {
+        this.elasticsearchBackend = elasticsearchBackend;
+        this.memoryBackend = memoryBackend;
+        this.searchResultCache = searchResultCache;
+        this.properties = properties;
+        this.metrics = metrics;
+        CourseSearchProperties.Backend settings = properties.getBackend();
+        this.circuitBreaker = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenDuration());
+    }
+
     public Map<String, Object> searchCourses(CourseSearchCriteria criteria) throws IOException {
-        SearchRequest.Builder searchRequestBuilder = new SearchRequest.Builder()
-                .index(INDEX_NAME)
-                .from(criteria.getPage() != null ? criteria.getPage() * (criteria.getSize() != null ? criteria.getSize() : DEFAULT_PAGE_SIZE) : DEFAULT_PAGE_NUMBER)
-                .size(criteria.getSize() != null ? criteria.getSize() : DEFAULT_PAGE_SIZE);
-
-        List<Query> filterQueries = new ArrayList<>();
-        List<Query> matchQueries = new ArrayList<>();
-
-        if (criteria.getQ() != null && !criteria.getQ().isBlank()) {
-            matchQueries.add(Query.of(q -> q
-                    .multiMatch(mm -> mm
-                            .fields("title", "description")
-                            .query(criteria.getQ())
-                            .fuzziness("AUTO")
-                    )
-            ));
+        CourseSearchCriteria normalized = normalize(criteria);
+        if (requiresCursorWalk(normalized)) {
+            return execute(backend -> backend.search(normalized), CourseSearchService::degraded); // cursor pages are per-client sessions, not worth caching
         }
+        return searchResultCache.get(normalized, key -> execute(backend -> backend.search(key), CourseSearchService::degraded));
+    }
 
-        if (criteria.getCategory() != null && !criteria.getCategory().isBlank()) {
-            filterQueries.add(Query.of(q -> q.term(t -> t.field("category").value(criteria.getCategory()))));
+    /**
+     * Runs several searches at once for {@code /api/search/batch}. Entries that normalize to the same criteria
+     * are searched once, cached pages are reused, and the rest go to the backend together (a single
+     * {@code _msearch} on Elasticsearch). Returns {@code {took, results}} with one
+     * {@code {took, result}} or {@code {took, status, error}} per entry, in request order; {@code took} of an
+     * entry is the backend time spent on it, 0 when it came from the cache.
+     *
+     * @throws IllegalArgumentException if the batch is empty or larger than {@code batch.max-size}
+     */
+    public Map<String, Object> searchBatch(List<CourseSearchCriteria> batch) throws IOException {
+        int maxSize = properties.getBatch().getMaxSize();
+        if (batch == null || batch.isEmpty()) {
+            throw new IllegalArgumentException("A batch needs at least one search");
+        }
+        if (batch.size() > maxSize) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxSize + " searches");
         }
-        if (criteria.getType() != null && !criteria.getType().isBlank()) {
-            filterQueries.add(Query.of(q -> q.term(t -> t.field("type").value(criteria.getType()))));
+        long start = System.nanoTime();
+        List<CourseSearchCriteria> normalized = batch.stream().map(this::normalize).toList();
+
+        Map<CourseSearchCriteria, CourseSearchBackend.BatchEntry> entries = new LinkedHashMap<>();
+        List<CourseSearchCriteria> distinct = new ArrayList<>();
+        for (CourseSearchCriteria criteria : new LinkedHashSet<>(normalized)) {
+            if (requiresCursorWalk(criteria)) {
+                entries.put(criteria, CourseSearchBackend.BatchEntry.failed(new IllegalArgumentException(
+                        "Cursors and pages beyond paging.max-from-depth are not supported in a batch")));
+            } else {
+                distinct.add(criteria);
+            }
+        }
+        if (!distinct.isEmpty()) {
+            entries.putAll(searchResultCache.getAll(distinct,
+                    missing -> execute(backend -> backend.searchAll(missing), CourseSearchService::degraded)));
         }
-        if (criteria.getMinAge() != null) {
-            filterQueries.add(Query.of(q -> q.range(r -> r.field("minAge").gte(JsonData.of(criteria.getMinAge())))));
+
+        List<Map<String, Object>> results = new ArrayList<>(normalized.size());
+        for (CourseSearchCriteria criteria : normalized) {
+            results.add(toBatchResult(entries.get(criteria)));
         }
-        if (criteria.getMaxAge() != null) {
-            filterQueries.add(Query.of(q -> q.range(r -> r.field("maxAge").lte(JsonData.of(criteria.getMaxAge())))));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("took", (System.nanoTime() - start) / 1_000_000);
+        response.put("results", results);
+        log.debug("Batch of {} searches ({} distinct) took {} ms", batch.size(), entries.size(), response.get("took"));
+        return response;
+    }
+
+    /**
+     * Facet counts only, see {@link CourseSearchBackend#facets}.
+     */
+    public Map<String, Object> searchFacets(CourseSearchCriteria criteria) throws IOException {
+        CourseSearchCriteria normalized = normalize(criteria);
+        return execute(backend -> backend.facets(normalized), CourseSearchService::degraded);
+    }
+
+    public boolean isMemoryPrimary() {
+        return properties.getBackend().isMemoryPrimary();
+    }
+
+    /**
+     * Normalized {@code criteria} of a search request.
+     *
+     * @throws IllegalArgumentException if {@code page} is negative, {@code size} is not between 1 and
+     *                                  {@code paging.max-page-size}, or {@code fields} names anything but a
+     *                                  {@link CourseProjection#FIELDS list-view field}
+     */
+    CourseSearchCriteria normalize(CourseSearchCriteria criteria) {
+        CourseSearchCriteria normalized = criteria.normalized(DEFAULT_PAGE_NUMBER, DEFAULT_PAGE_SIZE);
+        if (normalized.getPage() < 0) {
+            throw new IllegalArgumentException("page must not be negative");
         }
-        if (criteria.getMinPrice() != null) {
-            filterQueries.add(Query.of(q -> q.range(r -> r.field("price").gte(JsonData.of(criteria.getMinPrice())))));
+        int maxSize = properties.getPaging().getMaxPageSize();
+        if (normalized.getSize() < 1 || normalized.getSize() > maxSize) {
+            throw new IllegalArgumentException("size must be between 1 and " + maxSize);
         }
-        if (criteria.getMaxPrice() != null) {
-            filterQueries.add(Query.of(q -> q.range(r -> r.field("price").lte(JsonData.of(criteria.getMaxPrice())))));
+        CourseProjection.checkFields(normalized.getFields());
+        return normalized;
+    }
+
+    /**
+     * Whether normalized criteria need the multi-request cursor path rather than a single from/size search.
+     */
+    boolean requiresCursorWalk(CourseSearchCriteria criteria) {
+        return elasticsearchBackend.requiresCursorWalk(criteria);
+    }
+
+    /**
+     * Runs {@code call} on the configured backend; a result served from memory because Elasticsearch failed
+     * is passed through {@code markDegraded}.
+     */
+    private <T> T execute(BackendCall<T> call, UnaryOperator<T> markDegraded) throws IOException {
+        CourseSearchProperties.Backend settings = properties.getBackend();
+        if (settings.isMemoryPrimary()) {
+            return timed(memoryBackend, call);
         }
-        if (criteria.getStartDate() != null) {
-            filterQueries.add(Query.of(q -> q.range(r -> r.field("nextSessionDate").gte(JsonData.of(criteria.getStartDate().toString())))));
+        if (!settings.isFallback()) {
+            return timed(elasticsearchBackend, call);
         }
 
-        searchRequestBuilder.query(q -> q
-                .bool(b -> b
-                        .must(matchQueries)
-                        .filter(filterQueries)
-                )
-        );
-
-        if (criteria.getSort() != null && !criteria.getSort().isBlank()) {
-            String sortParam = criteria.getSort().toLowerCase();
-            if (sortParam.equals("price:asc")) {
-                searchRequestBuilder.sort(s -> s.field(f -> f.field("price").order(SortOrder.Asc)));
-            } else if (sortParam.equals("price:desc")) {
-                searchRequestBuilder.sort(s -> s.field(f -> f.field("price").order(SortOrder.Desc)));
-            } else if (sortParam.equals("upcoming")) {
-                searchRequestBuilder.sort(s -> s.field(f -> f.field("nextSessionDate").order(SortOrder.Asc)));
+        if (circuitBreaker.allowRequest()) {
+            try {
+                T result = timed(elasticsearchBackend, call);
+                circuitBreaker.recordSuccess();
+                return result;
+            } catch (IOException | ElasticsearchException e) {
+                if (!isUnavailable(e)) {
+                    circuitBreaker.recordSuccess(); // Elasticsearch answered; the request itself was bad
+                    throw e;
+                }
+                circuitBreaker.recordFailure();
+                if (!memoryBackend.isReady()) {
+                    throw e;
+                }
+                log.warn("Elasticsearch search failed ({}), serving from memory", e.getMessage());
             }
-        } else {
-            searchRequestBuilder.sort(s -> s.field(f -> f.field("nextSessionDate").order(SortOrder.Asc)));
+        } else if (!memoryBackend.isReady()) {
+            throw new IOException("Elasticsearch is unavailable (circuit open) and no in-memory copy is loaded");
+        }
+        return markDegraded.apply(timed(memoryBackend, call));
+    }
+
+    private <T> T timed(CourseSearchBackend backend, BackendCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        try {
+            T result = call.execute(backend);
+            metrics.recordBackend(backend.name(), "success", start);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordBackend(backend.name(), "error", start);
+            throw e;
         }
+    }
 
-        SearchResponse<CourseDocument> response = elasticsearchClient.search(searchRequestBuilder.build(), CourseDocument.class);
-        long totalHits = response.hits().total() != null ? response.hits().total().value() : 0;
-        List<CourseDocument> courses = response.hits().hits().stream()
-                .map(hit -> hit.source())
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    private static boolean isUnavailable(Exception e) {
+        return !(e instanceof ElasticsearchException es) || es.status() == 429 || es.status() >= 500;
+    }
 
-        return Map.of("courses", courses, "total", totalHits);
+    private static Map<String, Object> degraded(Map<String, Object> result) {
+        Map<String, Object> marked = new LinkedHashMap<>(result);
+        marked.put("degraded", true);
+        return Collections.unmodifiableMap(marked);
     }
 
+    private static List<CourseSearchBackend.BatchEntry> degraded(List<CourseSearchBackend.BatchEntry> entries) {
+        return entries.stream()
+                .map(entry -> entry.result() == null ? entry
+                        : new CourseSearchBackend.BatchEntry(degraded(entry.result()), null, entry.tookMillis()))
+                .toList();
+    }
 
-    public List<String> getSuggestions(String query) throws IOException {
-        if (query == null || query.isBlank()) {
-            return Collections.emptyList();
+    private static Map<String, Object> toBatchResult(CourseSearchBackend.BatchEntry entry) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("took", entry.tookMillis());
+        if (entry.error() == null) {
+            result.put("result", entry.result());
+            return result;
         }
-
-        log.info("💡 Getting suggestions for query: {}", query);
-
-        SearchRequest searchRequest = new SearchRequest.Builder()
-                .index(INDEX_NAME)
-                .suggest(s -> s
-                        .suggesters("course-suggester", c -> c // 'c' is the Suggester.Builder
-                                .text(query) // <--- CORRECT FIX: Set the input text here!
-                                .completion(co -> co // 'co' is the CompletionSuggester.Builder, for specific options
-                                        .field("suggest")
-                                        .skipDuplicates(true)
-                                        .size(10)
-                                )
-                        )
-                )
-                .build();
-
-        SearchResponse<Void> response = elasticsearchClient.search(searchRequest, Void.class);
-
-        List<String> suggestions = new ArrayList<>();
-        if (response.suggest() != null) {
-            response.suggest().get("course-suggester")
-                    .stream()
-                    .flatMap(s -> s.completion().options().stream())
-                    .map(o -> o.text())
-                    .distinct()
-                    .collect(Collectors.toCollection(() -> suggestions));
+        Exception error = entry.error();
+        int status = error instanceof IllegalArgumentException ? 400
+                : error instanceof ElasticsearchException es ? es.status() : 500;
+        if (status >= 500) {
+            log.error("Batch entry failed: {}", error.getMessage(), error);
         }
-
-        log.info("💡 Found {} suggestions for query '{}'", suggestions.size(), query);
-        return suggestions;
+        result.put("status", status);
+        result.put("error", error.getMessage());
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -2,39 +2,199 @@ package com.undoschool.course_search.service;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.CompletionContext;
 import co.elastic.clients.elasticsearch.core.search.CompletionSuggestOption;
 import co.elastic.clients.elasticsearch.core.search.Suggestion;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSummary;
+import com.undoschool.course_search.loader.CourseChangeEvent;
+import com.undoschool.course_search.loader.CourseIndexManager;
+import com.undoschool.course_search.loader.CourseSuggestTokens;
+import com.undoschool.course_search.loader.IndexGenerationEvent;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
+/**
+ * Autocomplete for {@code /api/search/suggest}, optionally narrowed to a category and/or type. Served from
+ * in-memory {@link SuggestionTrie}s, one per category/type scope, built from the live index generation; until
+ * they have been built (or if building them fails) requests fall back to the Elasticsearch completion
+ * suggester and its {@code scope} context. Both rank courses by the weight {@link CourseSuggestTokens} derives
+ * from popularity and the next session, and suggest each course once, by title.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CourseSuggestService {
 
+    private static final List<String> SCAN_FIELDS = List.copyOf(CourseSuggestTokens.SOURCE_FIELDS);
+
     private final ElasticsearchClient elasticsearchClient;
+    private final CourseSearchProperties properties;
+    private final SearchMetrics metrics;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "suggest-trie-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Map<String, SuggestionTrie> tries; // by scope; swapped atomically once a rebuild completes
+
+    /**
+     * Course titles completing {@code query}, heaviest first; {@code category} and {@code type} narrow them to
+     * courses with exactly that value when given.
+     */
+    public List<String> suggestCourses(String query, String category, String type) throws IOException {
+        if (query == null || query.isBlank()) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        int size = properties.getSuggest().getSize();
+        String scope = CourseSuggestTokens.scope(blankToNull(category), blankToNull(type));
+        Map<String, SuggestionTrie> current = tries;
+        if (current != null) {
+            SuggestionTrie trie = current.get(scope);
+            List<String> suggestions = trie != null ? trie.suggest(query.trim(), size) : Collections.emptyList();
+            metrics.recordSuggest(true, start);
+            return suggestions;
+        }
+        List<String> suggestions = suggestFromElasticsearch(query, scope, size);
+        metrics.recordSuggest(false, start);
+        return suggestions;
+    }
+
+    public boolean isWarm() {
+        return tries != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!properties.getBackend().isMemoryPrimary()) {
+            scheduleRebuild(CourseIndexManager.ALIAS); // otherwise the in-memory backend calls rebuild(courses)
+        }
+    }
+
+    @EventListener
+    public void onIndexGeneration(IndexGenerationEvent event) {
+        scheduleRebuild(event.index());
+    }
+
+    @EventListener
+    public void onCourseChange(CourseChangeEvent event) {
+        // the in-memory backend rebuilds from its own data when it is primary
+        if (!properties.getBackend().isMemoryPrimary() && event.affectsSuggestions()) {
+            scheduleRebuild(CourseIndexManager.ALIAS);
+        }
+    }
+
+    private void scheduleRebuild(String index) {
+        if (!properties.getSuggest().isInMemory()) {
+            return;
+        }
+        rebuildExecutor.execute(() -> {
+            try {
+                rebuild(index);
+            } catch (Exception e) {
+                log.warn("Could not build suggestion tries from '{}', serving suggestions from Elasticsearch: {}", index, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Scans the courses of {@code index} and swaps in tries built from them. Weights are computed afresh, so
+     * the recency part reflects the time of the rebuild rather than of indexing.
+     */
+    void rebuild(String index) throws IOException {
+        long start = System.nanoTime();
+        Map<String, List<SuggestionTrie.Entry>> entries = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        long courses = CourseIndexScan.scan(elasticsearchClient, index, SCAN_FIELDS, properties.getPaging().getPitKeepAlive(),
+                course -> addEntries(entries, course, now));
 
-    public List<String> suggestCourses(String query) throws IOException {
-        SearchResponse<Void> response = elasticsearchClient.search(s -> s
-                        .index("courses")
+        tries = build(entries);
+        log.info("Built suggestion tries from '{}': {} courses in {} scopes in {} ms",
+                index, courses, entries.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Swaps in tries built from {@code courses}, for data that is not in Elasticsearch.
+     */
+    public void rebuild(Collection<CourseDocument> courses) {
+        if (!properties.getSuggest().isInMemory()) {
+            return;
+        }
+        Map<String, List<SuggestionTrie.Entry>> entries = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (CourseDocument course : courses) {
+            addEntries(entries, course, now);
+        }
+        tries = build(entries);
+        log.info("Built suggestion tries from {} in-memory courses in {} scopes", courses.size(), entries.size());
+    }
+
+    private void addEntries(Map<String, List<SuggestionTrie.Entry>> entries, CourseDocument course, LocalDateTime now) {
+        if (course == null || course.getTitle() == null) {
+            return;
+        }
+        int weight = CourseSuggestTokens.weight(course, properties.getSuggest(), now);
+        for (String scope : CourseSuggestTokens.scopes(course.getCategory(), course.getType())) {
+            List<SuggestionTrie.Entry> scoped = entries.computeIfAbsent(scope, s -> new ArrayList<>());
+            for (String input : CourseSuggestTokens.inputs(course.getTitle())) {
+                scoped.add(new SuggestionTrie.Entry(input.toLowerCase(Locale.ROOT), course.getTitle(), weight));
+            }
+        }
+    }
+
+    private Map<String, SuggestionTrie> build(Map<String, List<SuggestionTrie.Entry>> entries) {
+        Map<String, SuggestionTrie> built = new HashMap<>();
+        entries.forEach((scope, scoped) -> built.put(scope, SuggestionTrie.build(scoped, properties.getSuggest().getSize())));
+        return built;
+    }
+
+    private List<String> suggestFromElasticsearch(String query, String scope, int size) throws IOException {
+        SearchResponse<CourseSummary> response = elasticsearchClient.search(s -> s
+                        .index(CourseIndexManager.ALIAS)
+                        .source(src -> src.filter(f -> f.includes("title")))
                         .suggest(sg -> sg
                                 .suggesters("course-suggest", sgt -> sgt
                                         .prefix(query)
                                         .completion(c -> c
                                                 .field("suggest")
                                                 .skipDuplicates(true)
-                                                .size(10)
+                                                .size(size)
+                                                .contexts(CourseSuggestTokens.SCOPE_CONTEXT, List.of(
+                                                        CompletionContext.of(cc -> cc.context(ctx -> ctx.category(scope)))))
                                         )
                                 )
                         ),
-                Void.class
+                CourseSummary.class
         );
+        return toSuggestions(response);
+    }
 
+    /**
+     * Distinct course titles of the {@code course-suggest} completion suggester, in response order; an option
+     * without a source is represented by the input it matched.
+     */
+    static List<String> toSuggestions(SearchResponse<CourseSummary> response) {
         List<? extends Suggestion<?>> rawSuggestions = response.suggest().get("course-suggest");
 
         if (rawSuggestions == null || rawSuggestions.isEmpty()) {
@@ -42,15 +202,27 @@ public class CourseSuggestService {
         }
 
         return rawSuggestions.stream()
-                .flatMap(suggestion -> {
-                    if (suggestion.completion() != null) {
-                        return suggestion.completion().options().stream();
-                    }
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .map(CompletionSuggestOption::text) // This is correct: option.text() returns String
+                .filter(Suggestion::isCompletion)
+                .flatMap(suggestion -> suggestion.completion().options().stream())
+                .map(CourseSuggestService::title)
                 .filter(Objects::nonNull)
+                .distinct()
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    private static String title(CompletionSuggestOption<?> option) {
+        if (option.source() instanceof CourseSummary course && course.getTitle() != null) {
+            return course.getTitle();
+        }
+        return option.text();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,149 @@
+package com.undoschool.course_search.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-process equivalent of {@code search_analyzer} in {@code es-settings.json}: {@code standard} tokenizer,
+ * then {@code lowercase} and {@code asciifolding}. Tokens are runs of letters and digits; as in Unicode word
+ * segmentation, an apostrophe or period between two letters (or a period or comma between two digits)
+ * does not split a token, so {@code don't}, {@code u.s} and {@code 3.5} stay whole.
+ */
+final class CourseTextAnalyzer {
+
+    private static final int PREFIX_MIN_GRAM = 2; // title_prefix edge_ngram filter
+    private static final int PREFIX_MAX_GRAM = 15;
+
+    private CourseTextAnalyzer() {
+    }
+
+    static List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = fold(text.toLowerCase(Locale.ROOT));
+        int length = folded.length();
+        int start = -1;
+        for (int i = 0; i < length; i++) {
+            char c = folded.charAt(i);
+            if (isWordChar(c) || (start >= 0 && joins(folded, i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(folded.substring(start));
+        }
+        return tokens;
+    }
+
+    /**
+     * Tokens of {@code prefix_analyzer} in {@code es-settings.json}: the leading 2 to 15 characters of every
+     * {@link #analyze analyzed} token, shortest first.
+     */
+    static List<String> edgeNgrams(String text) {
+        List<String> grams = new ArrayList<>();
+        for (String token : analyze(text)) {
+            for (int length = PREFIX_MIN_GRAM; length <= Math.min(PREFIX_MAX_GRAM, token.length()); length++) {
+                grams.add(token.substring(0, length));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Edit distance {@code fuzziness: AUTO} allows for a query term: none up to 2 characters, 1 up to 5, else 2.
+     */
+    static int autoFuzziness(String term) {
+        int length = term.codePointCount(0, term.length());
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Optimal-string-alignment distance (Levenshtein plus adjacent transpositions, as Lucene's fuzzy query
+     * counts them), or {@code max + 1} as soon as it is known to exceed {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean joins(String text, int i) {
+        if (i + 1 >= text.length()) {
+            return false;
+        }
+        char c = text.charAt(i);
+        char before = text.charAt(i - 1);
+        char after = text.charAt(i + 1);
+        boolean letters = Character.isLetter(before) && Character.isLetter(after);
+        boolean digits = Character.isDigit(before) && Character.isDigit(after);
+        return ((c == '\'' || c == '’') && letters) || (c == '.' && (letters || digits)) || (c == ',' && digits);
+    }
+
+    private static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            return text;
+        }
+        StringBuilder folded = new StringBuilder(text.length());
+        for (char c : Normalizer.normalize(text, Normalizer.Form.NFD).toCharArray()) {
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue; // combining accent split off by NFD
+            }
+            switch (c) {
+                case 'ß' -> folded.append("ss");
+                case 'æ' -> folded.append("ae");
+                case 'œ' -> folded.append("oe");
+                case 'ø' -> folded.append('o');
+                case 'ł' -> folded.append('l');
+                case 'đ' -> folded.append('d');
+                case 'þ' -> folded.append("th");
+                case 'ı' -> folded.append('i');
+                default -> folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+}
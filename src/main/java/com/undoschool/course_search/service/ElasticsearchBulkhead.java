@@ -0,0 +1,141 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Guards asynchronous Elasticsearch calls: at most {@code max-concurrent-calls} run at once (further calls
+ * fail immediately with {@link RejectedExecutionException} instead of queueing), and a call still running
+ * after {@code deadline} is cancelled, which aborts its HTTP request, and fails with {@link TimeoutException}.
+ * Blocking work such as a cursor walk cannot be aborted that way, so {@link #callBlocking} fails the caller at
+ * the deadline but keeps the permit until the work has actually returned.
+ */
+@Component
+public class ElasticsearchBulkhead {
+
+    private final Semaphore permits;
+    private final Duration deadline;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-deadline-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ElasticsearchBulkhead(CourseSearchProperties properties) {
+        this.permits = new Semaphore(properties.getExecution().getMaxConcurrentCalls());
+        this.deadline = properties.getExecution().getDeadline();
+    }
+
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call) {
+        return call(call, deadlineFromNow());
+    }
+
+    /**
+     * The {@link System#nanoTime} at which a request arriving now runs out of time, for requests that make
+     * several calls: each is passed to {@link #call(Supplier, long)} so they share one deadline between them.
+     */
+    public long deadlineFromNow() {
+        return System.nanoTime() + deadline.toNanos();
+    }
+
+    /**
+     * Like {@link #call(Supplier)}, but cancelled at {@code deadlineNanos} (a {@link System#nanoTime} value)
+     * rather than a full deadline after it starts. Fails without calling if that time has already passed.
+     */
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call, long deadlineNanos) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return CompletableFuture.failedFuture(deadlineExceeded());
+        }
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many concurrent Elasticsearch calls"));
+        }
+        CompletableFuture<T> inFlight;
+        try {
+            inFlight = call.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            timedOut.set(true);
+            inFlight.cancel(true);
+        }, remainingNanos, TimeUnit.NANOSECONDS);
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        inFlight.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            permits.release();
+            if (error == null) {
+                result.complete(value);
+            } else if (timedOut.get()) {
+                result.completeExceptionally(deadlineExceeded());
+            } else {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs {@code work}, which makes blocking Elasticsearch calls, on {@code executor} under the same limits. At
+     * the deadline the returned future fails with {@link TimeoutException}, but the permit stays taken until
+     * {@code work} returns: a walk that is still issuing requests still counts against {@code max-concurrent-calls}.
+     */
+    public <T> CompletableFuture<T> callBlocking(Callable<T> work, Executor executor) {
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many concurrent Elasticsearch calls"));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(work.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        ScheduledFuture<?> timeout = timer.schedule(() -> result.completeExceptionally(deadlineExceeded()),
+                deadline.toMillis(), TimeUnit.MILLISECONDS);
+        result.whenComplete((value, error) -> timeout.cancel(false));
+        return result;
+    }
+
+    private TimeoutException deadlineExceeded() {
+        return new TimeoutException("Elasticsearch call exceeded its deadline of " + deadline.toMillis() + " ms");
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,557 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.Rescore;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.util.ObjectBuilder;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+import com.undoschool.course_search.service.SearchCursorCodec.SearchCursor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The Elasticsearch {@link CourseSearchBackend}: from/size pages against the {@code courses} alias, and
+ * {@code search_after} walks under a point-in-time for cursors and pages beyond {@code max-from-depth}.
+ * <p>
+ * Text is matched in two passes (see {@link CourseSearchProperties.Relevance}): exact terms on a boosted
+ * {@code title}, its edge-ngram {@code title.prefix} subfield and {@code description} first, and only when
+ * that matches nothing, a fuzzy pass. Relevance-sorted pages re-rank their top hits by title phrase proximity.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ElasticsearchCourseSearchBackend implements CourseSearchBackend {
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final SearchCursorCodec searchCursorCodec;
+    private final CourseSearchProperties properties;
+    private final SearchMetrics metrics;
+    private static final String INDEX_NAME = "courses";
+
+    @Override
+    public String name() {
+        return "elasticsearch";
+    }
+
+    /**
+     * Whether normalized criteria need the multi-request cursor path rather than a single from/size search.
+     */
+    boolean requiresCursorWalk(CourseSearchCriteria criteria) {
+        return criteria.getCursor() != null || isDeep(criteria);
+    }
+
+    @Override
+    public Map<String, Object> search(CourseSearchCriteria criteria) throws IOException {
+        if (!requiresCursorWalk(criteria)) {
+            long stage = metrics.startStage();
+            SearchRequest request = buildPageRequest(criteria);
+            metrics.recordBuild(stage);
+            SearchResponse<CourseSummary> response = search("page", request, CourseSummary.class);
+            if (needsFuzzyFallback(criteria, response)) {
+                response = search("page_fuzzy", buildPageRequest(criteria, true), CourseSummary.class);
+            }
+            return toResult(criteria, response, null);
+        }
+
+        // Facets are only computed for from/size pages; cursor walks keep every filter in the query.
+        List<SortOptions> sort = buildSort(criteria);
+        if (criteria.getCursor() != null) {
+            SearchCursor cursor = searchCursorCodec.decode(criteria.getCursor());
+            if (!SearchCursorCodec.fingerprint(criteria).equals(cursor.criteria())) {
+                throw new IllegalArgumentException("Cursor was issued for a different query");
+            }
+            String pitId = cursor.pitId() != null ? cursor.pitId() : openPointInTime();
+            return searchAfter(criteria, false, sort, pitId, cursor.searchAfter());
+        }
+        // from+size this deep makes every shard collect and sort the whole prefix, so walk to the
+        // requested offset with search_after instead, fetching only sort values.
+        String pitId = openPointInTime();
+        long offset = (long) criteria.getPage() * criteria.getSize();
+        boolean fuzzy = false;
+        SkipPosition position = skipAhead(buildQuery(criteria), sort, pitId, offset);
+        if (position.searchAfter() == null && position.skipped() == 0 && usesFuzzyFallback(criteria)) {
+            fuzzy = true; // the exact pass matched nothing at all
+            position = skipAhead(buildQuery(criteria, false, true), sort, position.pitId(), offset);
+        }
+        if (position.searchAfter() == null) {
+            // past the last hit: an empty page, but the walk counted every match on the way, so the total is exact
+            closePointInTime(position.pitId());
+            return withRescored(criteria, CourseSearchBackend.result(List.of(), position.skipped(), false, null, null), false);
+        }
+        return searchAfter(criteria, fuzzy, sort, position.pitId(), position.searchAfter());
+    }
+
+    /**
+     * Whether text criteria get a fuzzy second pass when the exact one matches nothing.
+     */
+    boolean usesFuzzyFallback(CourseSearchCriteria criteria) {
+        return criteria.getQ() != null && properties.getRelevance().isFuzzyFallback();
+    }
+
+    boolean needsFuzzyFallback(CourseSearchCriteria criteria, ResponseBody<?> response) {
+        TotalHits total = response.hits().total();
+        return usesFuzzyFallback(criteria) && (total != null ? total.value() : response.hits().hits().size()) == 0;
+    }
+
+    /**
+     * Facet counts only ({@code size=0}), for refreshing facets without re-fetching hits. Such requests
+     * are served from the Elasticsearch shard request cache until the next refresh.
+     */
+    @Override
+    public Map<String, Object> facets(CourseSearchCriteria criteria) throws IOException {
+        SearchResponse<Void> response = search("facets", buildFacetsRequest(criteria, false), Void.class);
+        if (needsFuzzyFallback(criteria, response)) {
+            response = search("facets_fuzzy", buildFacetsRequest(criteria, true), Void.class);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        putTotal(result, response.hits().total());
+        result.put("facets", CourseFacets.toFacets(response.aggregations()));
+        return result;
+    }
+
+    private SearchRequest buildFacetsRequest(CourseSearchCriteria criteria, boolean fuzzy) {
+        SearchRequest.Builder request = new SearchRequest.Builder()
+                .index(INDEX_NAME)
+                .size(0)
+                .requestCache(true)
+                .trackTotalHits(trackTotalHits())
+                .query(buildQuery(criteria, true, fuzzy))
+                .aggregations(CourseFacets.aggregations(criteria, properties.getFacets()));
+        Query postFilter = CourseFacets.postFilter(criteria);
+        if (postFilter != null) {
+            request.postFilter(postFilter);
+        }
+        return request.build();
+    }
+
+    /**
+     * Single from/size search for normalized criteria that do not {@link #requiresCursorWalk need a cursor walk}.
+     * With {@code facets} requested, the category and type filters move to {@code post_filter} so the
+     * {@link CourseFacets} aggregations can count sibling values.
+     * <p>
+     * {@link #isRescored Rescored} pages carry no explicit sort, which Elasticsearch does not allow next to
+     * {@code rescore}; they come back in score order but without sort values, so they issue no cursor, and
+     * are marked {@code rescored} to tell them from the unrescored pages of a walk past the from/size depth.
+     */
+    SearchRequest buildPageRequest(CourseSearchCriteria criteria) {
+        return buildPageRequest(criteria, false);
+    }
+
+    /**
+     * @param fuzzy build the fuzzy fallback pass instead of the exact one
+     */
+    SearchRequest buildPageRequest(CourseSearchCriteria criteria, boolean fuzzy) {
+        boolean facets = Boolean.TRUE.equals(criteria.getFacets());
+        SearchRequest.Builder request = new SearchRequest.Builder()
+                .index(INDEX_NAME)
+                .from(Math.toIntExact((long) criteria.getPage() * criteria.getSize())) // shallow: within max-from-depth
+                .size(criteria.getSize())
+                .trackTotalHits(trackTotalHits())
+                .source(sourceFilter(criteria))
+                .query(buildQuery(criteria, facets, fuzzy));
+        if (isRescored(criteria)) {
+            request.rescore(phraseRescore(criteria));
+        } else {
+            request.sort(buildSort(criteria));
+        }
+        if (facets) {
+            request.aggregations(CourseFacets.aggregations(criteria, properties.getFacets()));
+            Query postFilter = CourseFacets.postFilter(criteria);
+            if (postFilter != null) {
+                request.postFilter(postFilter);
+            }
+        }
+        return request.build();
+    }
+
+    /**
+     * All entries as one {@code _msearch} round trip. Each entry must be a from/size page, and its body is the
+     * one {@link #buildPageRequest} builds for it.
+     */
+    @Override
+    public List<BatchEntry> searchAll(List<CourseSearchCriteria> criteria) throws IOException {
+        List<MultiSearchResponseItem<CourseSummary>> items = new ArrayList<>(msearch("msearch", buildBatchRequest(criteria)));
+
+        // Entries whose exact pass matched nothing get their fuzzy pass in one more round trip.
+        List<Integer> fuzzy = new ArrayList<>();
+        for (int i = 0; i < criteria.size(); i++) {
+            if (items.get(i).isResult() && needsFuzzyFallback(criteria.get(i), items.get(i).result())) {
+                fuzzy.add(i);
+            }
+        }
+        if (!fuzzy.isEmpty()) {
+            List<MultiSearchResponseItem<CourseSummary>> retried = msearch("msearch_fuzzy",
+                    buildBatchRequest(fuzzy.stream().map(criteria::get).toList(), true));
+            for (int i = 0; i < fuzzy.size(); i++) {
+                items.set(fuzzy.get(i), retried.get(i));
+            }
+        }
+
+        List<BatchEntry> entries = new ArrayList<>(criteria.size());
+        for (int i = 0; i < criteria.size(); i++) {
+            MultiSearchResponseItem<CourseSummary> item = items.get(i);
+            if (item.isFailure()) {
+                entries.add(BatchEntry.failed(new ElasticsearchException("msearch", item.failure())));
+            } else {
+                entries.add(new BatchEntry(toResult(criteria.get(i), item.result(), null), null, item.result().took()));
+            }
+        }
+        return entries;
+    }
+
+    private List<MultiSearchResponseItem<CourseSummary>> msearch(String operation, MsearchRequest request) throws IOException {
+        long start = System.nanoTime();
+        MsearchResponse<CourseSummary> response = elasticsearchClient.msearch(request, CourseSummary.class);
+        metrics.recordElasticsearch(operation, start, response.took());
+        return response.responses();
+    }
+
+    MsearchRequest buildBatchRequest(List<CourseSearchCriteria> criteria) {
+        return buildBatchRequest(criteria, false);
+    }
+
+    private MsearchRequest buildBatchRequest(List<CourseSearchCriteria> criteria, boolean fuzzy) {
+        List<RequestItem> searches = new ArrayList<>(criteria.size());
+        for (CourseSearchCriteria entry : criteria) {
+            SearchRequest page = buildPageRequest(entry, fuzzy);
+            searches.add(RequestItem.of(item -> item
+                    .header(h -> h.index(INDEX_NAME))
+                    .body(b -> {
+                        b.from(page.from())
+                                .size(page.size())
+                                .trackTotalHits(page.trackTotalHits())
+                                .source(page.source())
+                                .query(page.query())
+                                .aggregations(page.aggregations())
+                                .postFilter(page.postFilter());
+                        if (!page.rescore().isEmpty()) {
+                            b.rescore(page.rescore());
+                        } else {
+                            b.sort(page.sort());
+                        }
+                        return b;
+                    })));
+        }
+        return MsearchRequest.of(m -> m.searches(searches));
+    }
+
+    Query buildQuery(CourseSearchCriteria criteria) {
+        return buildQuery(criteria, false, false);
+    }
+
+    /**
+     * @param facetFiltersInPostFilter leave the category and type filters out; the caller applies them as
+     *                                 {@link CourseFacets#postFilter post_filter}
+     * @param fuzzy                    match text with fuzziness instead of exact and partial-word terms
+     */
+    private Query buildQuery(CourseSearchCriteria criteria, boolean facetFiltersInPostFilter, boolean fuzzy) {
+        List<Query> filterQueries = new ArrayList<>();
+        List<Query> matchQueries = new ArrayList<>();
+
+        if (criteria.getQ() != null) {
+            matchQueries.add(textQuery(criteria.getQ(), fuzzy));
+        }
+
+        if (!facetFiltersInPostFilter) {
+            if (criteria.getCategory() != null) {
+                filterQueries.add(CourseFacets.categoryFilter(criteria));
+            }
+            if (criteria.getType() != null) {
+                filterQueries.add(CourseFacets.typeFilter(criteria));
+            }
+        }
+        if (criteria.getMinAge() != null) {
+            filterQueries.add(Query.of(q -> q.range(r -> r.field("minAge").gte(JsonData.of(criteria.getMinAge())))));
+        }
+        if (criteria.getMaxAge() != null) {
+            filterQueries.add(Query.of(q -> q.range(r -> r.field("maxAge").lte(JsonData.of(criteria.getMaxAge())))));
+        }
+        if (criteria.getMinPrice() != null) {
+            filterQueries.add(Query.of(q -> q.range(r -> r.field("price").gte(JsonData.of(criteria.getMinPrice())))));
+        }
+        if (criteria.getMaxPrice() != null) {
+            filterQueries.add(Query.of(q -> q.range(r -> r.field("price").lte(JsonData.of(criteria.getMaxPrice())))));
+        }
+        if (criteria.getStartDate() != null) {
+            filterQueries.add(Query.of(q -> q.range(r -> r.field("nextSessionDate").gte(JsonData.of(criteria.getStartDate().toString())))));
+        }
+
+        if (matchQueries.isEmpty()) {
+            // Browse: nothing to score, so skip scoring altogether; filter clauses are cacheable per segment.
+            return Query.of(q -> q.constantScore(cs -> cs.filter(f -> f.bool(b -> b.filter(filterQueries)))));
+        }
+        return Query.of(q -> q
+                .bool(b -> b
+                        .must(matchQueries)
+                        .filter(filterQueries)
+                )
+        );
+    }
+
+    /**
+     * Sort for normalized criteria, always ending in the {@code id} keyword so every hit has a unique
+     * position that {@code search_after} can resume from.
+     */
+    List<SortOptions> buildSort(CourseSearchCriteria criteria) {
+        List<SortOptions> sort = new ArrayList<>();
+        String sortParam = criteria.getSort(); // normalized: lowercase, "upcoming" when absent
+        if (sortParam.equals("price:asc")) {
+            sort.add(SortOptions.of(s -> s.field(f -> f.field("price").order(SortOrder.Asc))));
+        } else if (sortParam.equals("price:desc")) {
+            sort.add(SortOptions.of(s -> s.field(f -> f.field("price").order(SortOrder.Desc))));
+        } else if (sortParam.equals("upcoming")) {
+            sort.add(SortOptions.of(s -> s.field(f -> f.field("nextSessionDate").order(SortOrder.Asc))));
+        } else {
+            sort.add(SortOptions.of(s -> s.score(sc -> sc.order(SortOrder.Desc))));
+        }
+        sort.add(SortOptions.of(s -> s.field(f -> f.field("id").order(SortOrder.Asc))));
+        return sort;
+    }
+
+    /**
+     * Exact terms on {@code title^title-boost}, {@code title.prefix^prefix-boost} and {@code description}
+     * (best field wins), or the fuzzy pass over {@code title^title-boost} and {@code description}.
+     */
+    private Query textQuery(String text, boolean fuzzy) {
+        CourseSearchProperties.Relevance relevance = properties.getRelevance();
+        String title = "title^" + relevance.getTitleBoost();
+        if (fuzzy || relevance.isFuzzyAlways()) {
+            return Query.of(q -> q.multiMatch(mm -> mm
+                    .fields(title, "description")
+                    .query(text)
+                    .fuzziness("AUTO")));
+        }
+        List<String> fields = new ArrayList<>(List.of(title, "description"));
+        if (relevance.getPrefixBoost() > 0) {
+            fields.add("title.prefix^" + relevance.getPrefixBoost());
+        }
+        return Query.of(q -> q.multiMatch(mm -> mm.fields(fields).query(text)));
+    }
+
+    /**
+     * Whether a from/size page is re-ranked by {@link #phraseRescore}: text queries sorted by relevance.
+     */
+    boolean isRescored(CourseSearchCriteria criteria) {
+        return criteria.getQ() != null && properties.getRelevance().getRescoreWindow() > 0 && isScoreSort(criteria);
+    }
+
+    private static boolean isScoreSort(CourseSearchCriteria criteria) {
+        String sort = criteria.getSort();
+        return !sort.equals("price:asc") && !sort.equals("price:desc") && !sort.equals("upcoming");
+    }
+
+    /**
+     * Adds a title {@code match_phrase} score to each shard's top {@code rescore-window} hits, so courses
+     * whose title holds the query words together rank first; the phrase query never runs over the whole index.
+     */
+    private Rescore phraseRescore(CourseSearchCriteria criteria) {
+        CourseSearchProperties.Relevance relevance = properties.getRelevance();
+        return Rescore.of(r -> r
+                .windowSize(relevance.getRescoreWindow())
+                .query(rq -> rq
+                        .query(q -> q.matchPhrase(mp -> mp
+                                .field("title")
+                                .query(criteria.getQ())
+                                .slop(relevance.getPhraseSlop())))
+                        .queryWeight(1.0)
+                        .rescoreQueryWeight((double) relevance.getPhraseBoost())));
+    }
+
+    private boolean isDeep(CourseSearchCriteria criteria) {
+        return ((long) criteria.getPage() + 1) * criteria.getSize() > properties.getPaging().getMaxFromDepth();
+    }
+
+    /**
+     * @param fuzzy the walk already switched to the fuzzy pass; otherwise a page whose exact query matches
+     *              nothing is retried fuzzy, as for from/size pages
+     */
+    private Map<String, Object> searchAfter(CourseSearchCriteria criteria, boolean fuzzy, List<SortOptions> sort,
+                                            String pitId, List<FieldValue> after) throws IOException {
+        SearchResponse<CourseSummary> response = searchAfter(criteria, buildQuery(criteria, false, fuzzy), sort, pitId, after);
+        if (!fuzzy && needsFuzzyFallback(criteria, response)) {
+            String pit = response.pitId() != null ? response.pitId() : pitId;
+            response = searchAfter(criteria, buildQuery(criteria, false, true), sort, pit, after);
+        }
+        return toResult(criteria, response, response.pitId());
+    }
+
+    private SearchResponse<CourseSummary> searchAfter(CourseSearchCriteria criteria, Query query, List<SortOptions> sort,
+                                                      String pitId, List<FieldValue> after) throws IOException {
+        SearchResponse<CourseSummary> response;
+        try {
+            response = search("search_after", s -> s
+                    .pit(p -> p.id(pitId).keepAlive(pitKeepAlive()))
+                    .size(criteria.getSize())
+                    .trackTotalHits(trackTotalHits())
+                    .source(sourceFilter(criteria))
+                    .query(query)
+                    .sort(sort)
+                    .searchAfter(after), CourseSummary.class);
+        } catch (ElasticsearchException e) {
+            if (e.status() != 404) {
+                throw e;
+            }
+            // The point-in-time expired: continue on the live alias; results may shift if the index changed.
+            log.debug("Point-in-time expired, continuing cursor without it");
+            response = search("search_after", s -> s
+                    .index(INDEX_NAME)
+                    .size(criteria.getSize())
+                    .trackTotalHits(trackTotalHits())
+                    .source(sourceFilter(criteria))
+                    .query(query)
+                    .sort(sort)
+                    .searchAfter(after), CourseSummary.class);
+        }
+        return response;
+    }
+
+    /**
+     * @param skipped hits walked past before {@code searchAfter}, or before running out of hits
+     */
+    private record SkipPosition(String pitId, List<FieldValue> searchAfter, long skipped) {
+    }
+
+    private SkipPosition skipAhead(Query query, List<SortOptions> sort, String pitId, long offset) throws IOException {
+        int batchSize = properties.getPaging().getSkipBatchSize();
+        List<FieldValue> after = null;
+        String currentPit = pitId;
+        long remaining = offset;
+        while (remaining > 0) {
+            int batch = (int) Math.min(remaining, batchSize);
+            List<FieldValue> previous = after;
+            String pit = currentPit;
+            SearchResponse<Void> response = search("skip", s -> {
+                s.pit(p -> p.id(pit).keepAlive(pitKeepAlive()))
+                        .size(batch)
+                        .query(query)
+                        .sort(sort)
+                        .source(src -> src.fetch(false))
+                        .trackTotalHits(t -> t.enabled(false));
+                if (previous != null) {
+                    s.searchAfter(previous);
+                }
+                return s;
+            }, Void.class);
+            currentPit = response.pitId() != null ? response.pitId() : currentPit;
+
+            List<Hit<Void>> hits = response.hits().hits();
+            if (hits.size() < batch) {
+                return new SkipPosition(currentPit, null, offset - remaining + hits.size()); // offset is past the last hit
+            }
+            after = hits.get(hits.size() - 1).sort();
+            remaining -= hits.size();
+        }
+        return new SkipPosition(currentPit, after, offset);
+    }
+
+    private <T> SearchResponse<T> search(String operation, SearchRequest request, Class<T> documentClass) throws IOException {
+        long start = System.nanoTime();
+        SearchResponse<T> response = elasticsearchClient.search(request, documentClass);
+        metrics.recordElasticsearch(operation, start, response);
+        return response;
+    }
+
+    private <T> SearchResponse<T> search(String operation, Function<SearchRequest.Builder, ObjectBuilder<SearchRequest>> request,
+                                         Class<T> documentClass) throws IOException {
+        return search(operation, SearchRequest.of(request), documentClass);
+    }
+
+    Map<String, Object> toResult(CourseSearchCriteria criteria, ResponseBody<CourseSummary> response, String pitId) {
+        long stage = metrics.startStage();
+        TotalHits total = response.hits().total();
+        List<Hit<CourseSummary>> hits = response.hits().hits();
+        List<CourseSummary> courses = hits.stream()
+                .map(hit -> hit.source())
+                .filter(Objects::nonNull)
+                .toList(); // unmodifiable: the result is shared through the cache
+
+        String nextCursor = null;
+        List<FieldValue> lastSort = hits.isEmpty() ? List.of() : hits.get(hits.size() - 1).sort();
+        if (hits.size() == criteria.getSize() && !lastSort.isEmpty()) { // rescored pages have no sort values
+            nextCursor = searchCursorCodec.encode(new SearchCursor(lastSort, pitId, SearchCursorCodec.fingerprint(criteria)));
+        } else if (pitId != null) {
+            closePointInTime(pitId); // last page of a cursor walk
+        }
+        Map<String, Object> facets = response.aggregations().isEmpty() ? null : CourseFacets.toFacets(response.aggregations());
+        metrics.recordMap(stage);
+        metrics.recordHits(courses.size());
+        Map<String, Object> result = CourseSearchBackend.result(courses, total != null ? total.value() : 0,
+                total != null && total.relation() == TotalHitsRelation.Gte, nextCursor, facets);
+        return withRescored(criteria, result, pitId == null);
+    }
+
+    /**
+     * Tells a relevance-sorted text query whether its page was {@link #phraseRescore rescored}. Only from/size
+     * pages are: Elasticsearch does not rescore next to the sort a cursor walk needs, so pages past
+     * {@code paging.max-from-depth} are ranked by the plain score, then {@code id}, and a client paging across
+     * that depth can see courses repeat or be skipped.
+     */
+    private Map<String, Object> withRescored(CourseSearchCriteria criteria, Map<String, Object> result, boolean rescored) {
+        if (!isRescored(criteria)) {
+            return result;
+        }
+        Map<String, Object> marked = new LinkedHashMap<>(result);
+        marked.put("rescored", rescored);
+        return Collections.unmodifiableMap(marked); // shared through the cache
+    }
+
+    private static void putTotal(Map<String, Object> result, TotalHits total) {
+        CourseSearchBackend.putTotal(result, total != null ? total.value() : 0,
+                total != null && total.relation() == TotalHitsRelation.Gte);
+    }
+
+    private TrackHits trackTotalHits() {
+        return TrackHits.of(t -> t.count(properties.getResults().getTrackTotalHitsUpTo()));
+    }
+
+    private SourceConfig sourceFilter(CourseSearchCriteria criteria) {
+        return SourceConfig.of(s -> s.filter(f -> f.includes(CourseProjection.fields(criteria, properties.getResults()))));
+    }
+
+    private String openPointInTime() throws IOException {
+        return elasticsearchClient.openPointInTime(o -> o.index(INDEX_NAME).keepAlive(pitKeepAlive())).id();
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(c -> c.id(pitId));
+        } catch (IOException | ElasticsearchException e) {
+            log.debug("Could not close point-in-time: {}", e.getMessage()); // it expires on its own
+        }
+    }
+
+    private Time pitKeepAlive() {
+        return Time.of(t -> t.time(properties.getPaging().getPitKeepAlive().toSeconds() + "s"));
+    }
+}
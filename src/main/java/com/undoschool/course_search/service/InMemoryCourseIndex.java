@@ -0,0 +1,781 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable in-process index over a set of courses, answering normalized {@link CourseSearchCriteria} the way
+ * {@link ElasticsearchCourseSearchBackend} does.
+ * <p>
+ * {@code title} and {@code description} have inverted indexes built with {@link CourseTextAnalyzer} and are
+ * scored with BM25 ({@code k1=1.2, b=0.75}); {@code q} is a best-fields match over both with the boosts and
+ * fuzzy fallback of {@link CourseSearchProperties.Relevance}; partial words match a third index over the edge
+ * ngrams of title words, as the {@code title.prefix} subfield does. Numeric and date fields are primitive columns,
+ * and {@code category}/{@code type} are one {@link RoaringBitmap} per value, so filters and facet counts are
+ * bitmap intersections. Pages are selected with a bounded heap over the matching documents. Scores follow
+ * Lucene's formula but not its per-shard statistics, ngram field lengths or fuzzy-term blending, and there is
+ * no phrase rescore, so relevance order can differ slightly from Elasticsearch.
+ * <p>
+ * {@link #withChanges} derives the next index from this one, analyzing only the changed courses.
+ */
+final class InMemoryCourseIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_EXPANSIONS = 50; // fuzzy query default
+    private static final int INT_MISSING = Integer.MIN_VALUE;
+    private static final long LONG_MISSING = Long.MIN_VALUE;
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final CourseDocument[] courses; // null in a slot vacated by a delete
+    private final String[] ids;
+    private final int[] minAges;
+    private final int[] maxAges;
+    private final double[] prices; // NaN when missing
+    private final long[] nextSessions; // epoch millis; Elasticsearch stores the zone-less date as UTC
+    private final Map<String, RoaringBitmap> categories;
+    private final Map<String, RoaringBitmap> types;
+    private final RoaringBitmap all;
+    private final TextField title;
+    private final TextField titlePrefix;
+    private final TextField description;
+    private final Map<String, Integer> slots; // id -> doc
+    private final int vacant;
+
+    /**
+     * One page: the courses, the number of matches (a lower bound once it reaches
+     * {@code results.track-total-hits-up-to}), the sort values of the last course when the page is full (to
+     * issue a cursor from), and facets when requested.
+     */
+    record Page(List<CourseSummary> courses, long total, boolean totalIsLowerBound, List<FieldValue> lastSort,
+                Map<String, Object> facets) {
+    }
+
+    private InMemoryCourseIndex(CourseDocument[] courses) {
+        int n = courses.length;
+        this.courses = courses;
+        this.ids = new String[n];
+        this.minAges = new int[n];
+        this.maxAges = new int[n];
+        this.prices = new double[n];
+        this.nextSessions = new long[n];
+        this.categories = new HashMap<>();
+        this.types = new HashMap<>();
+        this.all = new RoaringBitmap();
+        all.add(0L, n);
+        this.slots = new HashMap<>();
+        this.vacant = 0;
+
+        TextField.Builder titles = new TextField.Builder(null, n, CourseTextAnalyzer::analyze);
+        TextField.Builder titlePrefixes = new TextField.Builder(null, n, CourseTextAnalyzer::edgeNgrams);
+        TextField.Builder descriptions = new TextField.Builder(null, n, CourseTextAnalyzer::analyze);
+        for (int doc = 0; doc < n; doc++) {
+            CourseDocument course = courses[doc];
+            setColumns(doc, course);
+            if (course.getCategory() != null) {
+                categories.computeIfAbsent(course.getCategory(), k -> new RoaringBitmap()).add(doc);
+            }
+            if (course.getType() != null) {
+                types.computeIfAbsent(course.getType(), k -> new RoaringBitmap()).add(doc);
+            }
+            titles.add(doc, course.getTitle());
+            titlePrefixes.add(doc, course.getTitle());
+            descriptions.add(doc, course.getDescription());
+        }
+        categories.values().forEach(RoaringBitmap::runOptimize);
+        types.values().forEach(RoaringBitmap::runOptimize);
+        this.title = titles.build();
+        this.titlePrefix = titlePrefixes.build();
+        this.description = descriptions.build();
+    }
+
+    /**
+     * {@code base} with {@code changes} applied into {@code n} slots. Columns and the id map are copied; bitmaps
+     * and postings are shared with {@code base} except those a change touches, which are copied before editing.
+     */
+    private InMemoryCourseIndex(InMemoryCourseIndex base, Map<String, CourseDocument> changes, int n, int vacant) {
+        this.courses = Arrays.copyOf(base.courses, n);
+        this.ids = Arrays.copyOf(base.ids, n);
+        this.minAges = Arrays.copyOf(base.minAges, n);
+        this.maxAges = Arrays.copyOf(base.maxAges, n);
+        this.prices = Arrays.copyOf(base.prices, n);
+        this.nextSessions = Arrays.copyOf(base.nextSessions, n);
+        this.categories = new HashMap<>(base.categories);
+        this.types = new HashMap<>(base.types);
+        this.all = base.all.clone();
+        this.slots = new HashMap<>(base.slots);
+        this.vacant = vacant;
+
+        TextField.Builder titles = new TextField.Builder(base.title, n, CourseTextAnalyzer::analyze);
+        TextField.Builder titlePrefixes = new TextField.Builder(base.titlePrefix, n, CourseTextAnalyzer::edgeNgrams);
+        TextField.Builder descriptions = new TextField.Builder(base.description, n, CourseTextAnalyzer::analyze);
+        Set<RoaringBitmap> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+        int next = base.courses.length;
+        for (Map.Entry<String, CourseDocument> change : changes.entrySet()) {
+            Integer slot = slots.get(change.getKey());
+            if (slot != null) {
+                CourseDocument old = courses[slot];
+                editable(categories, old.getCategory(), owned).remove(slot);
+                editable(types, old.getType(), owned).remove(slot);
+                titles.remove(slot, old.getTitle());
+                titlePrefixes.remove(slot, old.getTitle());
+                descriptions.remove(slot, old.getDescription());
+                all.remove(slot);
+                courses[slot] = null;
+                ids[slot] = null;
+            }
+            CourseDocument course = change.getValue();
+            if (course == null) {
+                slots.remove(change.getKey());
+                continue;
+            }
+            int doc = slot != null ? slot : next++; // an updated course keeps its place in the id order
+            courses[doc] = course;
+            setColumns(doc, course);
+            editable(categories, course.getCategory(), owned).add(doc);
+            editable(types, course.getType(), owned).add(doc);
+            titles.add(doc, course.getTitle());
+            titlePrefixes.add(doc, course.getTitle());
+            descriptions.add(doc, course.getDescription());
+            all.add(doc);
+        }
+        categories.values().removeIf(RoaringBitmap::isEmpty);
+        types.values().removeIf(RoaringBitmap::isEmpty);
+        this.title = titles.build();
+        this.titlePrefix = titlePrefixes.build();
+        this.description = descriptions.build();
+    }
+
+    private void setColumns(int doc, CourseDocument course) {
+        ids[doc] = course.getId();
+        if (course.getId() != null) {
+            slots.put(course.getId(), doc);
+        }
+        minAges[doc] = course.getMinAge() != null ? course.getMinAge() : INT_MISSING;
+        maxAges[doc] = course.getMaxAge() != null ? course.getMaxAge() : INT_MISSING;
+        prices[doc] = course.getPrice() != null ? course.getPrice() : Double.NaN;
+        nextSessions[doc] = course.getNextSessionDate() != null ? epochMillis(course.getNextSessionDate()) : LONG_MISSING;
+    }
+
+    /**
+     * The bitmap of {@code value} in {@code values}, first copied if it is still shared with the base index
+     * (not in {@code owned}); a throwaway one for a {@code null} value.
+     */
+    private static RoaringBitmap editable(Map<String, RoaringBitmap> values, String value, Set<RoaringBitmap> owned) {
+        if (value == null) {
+            return new RoaringBitmap();
+        }
+        RoaringBitmap bitmap = values.get(value);
+        if (bitmap == null || !owned.contains(bitmap)) {
+            bitmap = bitmap != null ? bitmap.clone() : new RoaringBitmap();
+            owned.add(bitmap);
+            values.put(value, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Indexes {@code documents}; a later document replaces an earlier one with the same id, as a reindex would.
+     */
+    static InMemoryCourseIndex build(Collection<CourseDocument> documents) {
+        Map<Object, CourseDocument> byId = new LinkedHashMap<>();
+        for (CourseDocument document : documents) {
+            byId.put(document.getId() != null ? document.getId() : new Object(), document);
+        }
+        return new InMemoryCourseIndex(byId.values().toArray(CourseDocument[]::new));
+    }
+
+    /**
+     * This index with {@code changes} applied: each id maps to its new course, or to {@code null} to delete it.
+     * Only the changed courses are analyzed; a deleted one leaves its slot empty, and once a quarter of the
+     * slots are empty the index is rebuilt from scratch instead.
+     */
+    InMemoryCourseIndex withChanges(Map<String, CourseDocument> changes) {
+        int appended = 0;
+        int deleted = vacant;
+        for (Map.Entry<String, CourseDocument> change : changes.entrySet()) {
+            boolean present = slots.containsKey(change.getKey());
+            if (change.getValue() != null && !present) {
+                appended++;
+            } else if (change.getValue() == null && present) {
+                deleted++;
+            }
+        }
+        int n = courses.length + appended;
+        if (deleted * 4 > n) {
+            Map<String, CourseDocument> remaining = new LinkedHashMap<>();
+            List<CourseDocument> documents = new ArrayList<>();
+            for (CourseDocument course : documents()) {
+                if (course.getId() == null) {
+                    documents.add(course);
+                } else {
+                    remaining.put(course.getId(), course);
+                }
+            }
+            changes.forEach((id, course) -> {
+                if (course != null) {
+                    remaining.put(id, course);
+                } else {
+                    remaining.remove(id);
+                }
+            });
+            documents.addAll(remaining.values());
+            return build(documents);
+        }
+        return new InMemoryCourseIndex(this, changes, n, deleted);
+    }
+
+    int size() {
+        return courses.length - vacant;
+    }
+
+    List<CourseDocument> documents() {
+        List<CourseDocument> documents = new ArrayList<>(size());
+        for (CourseDocument course : courses) {
+            if (course != null) {
+                documents.add(course);
+            }
+        }
+        return Collections.unmodifiableList(documents);
+    }
+
+    CourseDocument document(String id) {
+        Integer doc = slots.get(id);
+        return doc != null ? courses[doc] : null;
+    }
+
+    /**
+     * @param searchAfter sort values of the last course of the previous page, or {@code null} to page by
+     *                    {@code page}/{@code size}
+     * @throws IllegalArgumentException if {@code searchAfter} does not fit the sort of {@code criteria}
+     */
+    Page search(CourseSearchCriteria criteria, List<FieldValue> searchAfter, boolean withFacets,
+                CourseSearchProperties properties) {
+        RoaringBitmap categorySelection = criteria.getCategory() != null ? categories.getOrDefault(criteria.getCategory(), EMPTY) : null;
+        RoaringBitmap typeSelection = criteria.getType() != null ? types.getOrDefault(criteria.getType(), EMPTY) : null;
+        float[] scores = null;
+        RoaringBitmap base;
+        RoaringBitmap selected;
+        if (criteria.getQ() != null) {
+            CourseSearchProperties.Relevance relevance = properties.getRelevance();
+            scores = new float[courses.length];
+            base = applyRanges(matchText(criteria.getQ(), scores, relevance, relevance.isFuzzyAlways()), criteria);
+            selected = select(base, categorySelection, typeSelection);
+            if (selected.isEmpty() && relevance.isFuzzyFallback()) {
+                Arrays.fill(scores, 0);
+                base = applyRanges(matchText(criteria.getQ(), scores, relevance, true), criteria);
+                selected = select(base, categorySelection, typeSelection);
+            }
+        } else {
+            base = applyRanges(all, criteria);
+            selected = select(base, categorySelection, typeSelection);
+        }
+
+        Order order = new Order(criteria.getSort(), scores);
+        IntPredicate accept = searchAfter != null ? order.after(searchAfter) : doc -> true;
+        long from = searchAfter != null ? 0 : (long) criteria.getPage() * criteria.getSize();
+        int k = (int) Math.min(from + criteria.getSize(), selected.getLongCardinality());
+        int[] top = topK(selected, k, order, accept);
+
+        List<String> fields = CourseProjection.fields(criteria, properties.getResults());
+        List<CourseSummary> page = new ArrayList<>();
+        for (long i = from; i < top.length; i++) {
+            page.add(CourseProjection.project(courses[top[(int) i]], fields));
+        }
+        List<FieldValue> lastSort = null;
+        if (!page.isEmpty() && page.size() == criteria.getSize()) {
+            lastSort = order.sortValues(top[top.length - 1]);
+        }
+
+        Map<String, Object> facets = null;
+        if (withFacets) {
+            CourseSearchProperties.Facets facetSettings = properties.getFacets();
+            facets = new LinkedHashMap<>();
+            RoaringBitmap forCategory = typeSelection != null ? RoaringBitmap.and(base, typeSelection) : base;
+            RoaringBitmap forType = categorySelection != null ? RoaringBitmap.and(base, categorySelection) : base;
+            facets.put("category", termCounts(categories, forCategory, facetSettings.getTermsSize()));
+            facets.put("type", termCounts(types, forType, facetSettings.getTermsSize()));
+            facets.put("price", histogram(selected, doc -> prices[doc], facetSettings.getPriceInterval()));
+            facets.put("minAge", histogram(selected, doc -> minAges[doc] == INT_MISSING ? Double.NaN : minAges[doc],
+                    facetSettings.getAgeInterval()));
+        }
+        long cap = properties.getResults().getTrackTotalHitsUpTo();
+        long matches = selected.getLongCardinality();
+        return new Page(Collections.unmodifiableList(page), Math.min(matches, cap), matches > cap, lastSort, facets);
+    }
+
+    private static RoaringBitmap select(RoaringBitmap base, RoaringBitmap categorySelection, RoaringBitmap typeSelection) {
+        RoaringBitmap selected = base;
+        if (categorySelection != null) {
+            selected = RoaringBitmap.and(selected, categorySelection);
+        }
+        if (typeSelection != null) {
+            selected = RoaringBitmap.and(selected, typeSelection);
+        }
+        return selected;
+    }
+
+    /**
+     * @param fuzzy the fuzzy pass over {@code title} and {@code description}; otherwise exact terms on both plus
+     *              partial words on {@code title}
+     */
+    private RoaringBitmap matchText(String q, float[] scores, CourseSearchProperties.Relevance relevance, boolean fuzzy) {
+        RoaringBitmap matched = new RoaringBitmap();
+        List<String> terms = CourseTextAnalyzer.analyze(q);
+        if (terms.isEmpty()) {
+            return matched; // like zero_terms_query: none
+        }
+        float titleBoost = relevance.getTitleBoost();
+        float prefixBoost = fuzzy ? 0 : relevance.getPrefixBoost();
+        float[] titleScores = title.score(terms, matched, fuzzy);
+        float[] prefixScores = prefixBoost > 0 ? titlePrefix.score(terms, matched, false) : null;
+        float[] descriptionScores = description.score(terms, matched, fuzzy);
+        IntIterator it = matched.getIntIterator();
+        while (it.hasNext()) {
+            int doc = it.next();
+            float score = Math.max(titleBoost * titleScores[doc], descriptionScores[doc]); // best_fields, tie_breaker 0
+            scores[doc] = prefixScores != null ? Math.max(score, prefixBoost * prefixScores[doc]) : score;
+        }
+        return matched;
+    }
+
+
+    private RoaringBitmap applyRanges(RoaringBitmap docs, CourseSearchCriteria criteria) {
+        Integer minAge = criteria.getMinAge();
+        Integer maxAge = criteria.getMaxAge();
+        Double minPrice = criteria.getMinPrice();
+        Double maxPrice = criteria.getMaxPrice();
+        long start = criteria.getStartDate() != null ? epochMillis(criteria.getStartDate()) : LONG_MISSING;
+        if (minAge == null && maxAge == null && minPrice == null && maxPrice == null && start == LONG_MISSING) {
+            return docs;
+        }
+        RoaringBitmap filtered = new RoaringBitmap();
+        IntIterator it = docs.getIntIterator();
+        while (it.hasNext()) {
+            int doc = it.next();
+            // A missing value never satisfies a range, as in Elasticsearch.
+            if (minAge != null && (minAges[doc] == INT_MISSING || minAges[doc] < minAge)) {
+                continue;
+            }
+            if (maxAge != null && (maxAges[doc] == INT_MISSING || maxAges[doc] > maxAge)) {
+                continue;
+            }
+            if (minPrice != null && !(prices[doc] >= minPrice)) {
+                continue;
+            }
+            if (maxPrice != null && !(prices[doc] <= maxPrice)) {
+                continue;
+            }
+            if (start != LONG_MISSING && (nextSessions[doc] == LONG_MISSING || nextSessions[doc] < start)) {
+                continue;
+            }
+            filtered.add(doc);
+        }
+        return filtered;
+    }
+
+    /**
+     * Sort of {@link ElasticsearchCourseSearchBackend#buildSort}: one primary key, then {@code id} ascending.
+     * Missing values sort last and produce the same sort values Elasticsearch returns for them, so cursors
+     * can move between the two backends.
+     */
+    private final class Order {
+
+        private final String sort;
+        private final float[] scores;
+        private final boolean descending;
+
+        Order(String sort, float[] scores) {
+            this.sort = sort;
+            this.scores = scores;
+            this.descending = !sort.equals("price:asc") && !sort.equals("upcoming");
+        }
+
+        double key(int doc) {
+            return switch (sort) {
+                case "price:asc" -> Double.isNaN(prices[doc]) ? Double.MAX_VALUE : prices[doc];
+                case "price:desc" -> Double.isNaN(prices[doc]) ? -Double.MAX_VALUE : prices[doc];
+                case "upcoming" -> nextSessions[doc] == LONG_MISSING ? Long.MAX_VALUE : nextSessions[doc];
+                default -> scores != null ? scores[doc] : 0f;
+            };
+        }
+
+        int compare(int a, int b) {
+            int primary = Double.compare(key(a), key(b));
+            if (primary != 0) {
+                return descending ? -primary : primary;
+            }
+            return compareIds(ids[a], ids[b]);
+        }
+
+        List<FieldValue> sortValues(int doc) {
+            FieldValue primary = sort.equals("upcoming") ? FieldValue.of((long) key(doc)) : FieldValue.of(key(doc));
+            return List.of(primary, ids[doc] != null ? FieldValue.of(ids[doc]) : FieldValue.NULL);
+        }
+
+        IntPredicate after(List<FieldValue> searchAfter) {
+            if (searchAfter.size() != 2) {
+                throw new IllegalArgumentException("Cursor does not match the sort order");
+            }
+            FieldValue primary = searchAfter.get(0);
+            double afterKey = primary.isLong() ? primary.longValue() : primary.isDouble() ? primary.doubleValue() : Double.NaN;
+            if (Double.isNaN(afterKey)) {
+                throw new IllegalArgumentException("Cursor does not match the sort order");
+            }
+            String afterId = searchAfter.get(1).isString() ? searchAfter.get(1).stringValue() : null;
+            return doc -> {
+                int c = Double.compare(key(doc), afterKey);
+                if (c != 0) {
+                    return (descending ? -c : c) > 0;
+                }
+                return compareIds(ids[doc], afterId) > 0;
+            };
+        }
+    }
+
+    private static int compareIds(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * The {@code k} first documents of {@code docs} in {@code order}, sorted. Keeps a max-heap of the best
+     * {@code k} seen so far, so selection is {@code O(n log k)} and holds only {@code k} ids.
+     */
+    private static int[] topK(RoaringBitmap docs, int k, Order order, IntPredicate accept) {
+        if (k <= 0) {
+            return new int[0];
+        }
+        int[] heap = new int[k];
+        int size = 0;
+        IntIterator it = docs.getIntIterator();
+        while (it.hasNext()) {
+            int doc = it.next();
+            if (!accept.test(doc)) {
+                continue;
+            }
+            if (size < k) {
+                heap[size] = doc;
+                siftUp(heap, size++, order);
+            } else if (order.compare(doc, heap[0]) < 0) {
+                heap[0] = doc;
+                siftDown(heap, 0, size, order);
+            }
+        }
+        // Heapsort in place: repeatedly move the last-ranked remaining document to the end.
+        for (int end = size - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, 0, end, order);
+        }
+        return size == k ? heap : Arrays.copyOf(heap, size);
+    }
+
+    private static void siftUp(int[] heap, int i, Order order) {
+        int doc = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (order.compare(doc, heap[parent]) <= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = doc;
+    }
+
+    private static void siftDown(int[] heap, int i, int size, Order order) {
+        int doc = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && order.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.compare(heap[child], doc) <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = doc;
+    }
+
+    private static List<Map<String, Object>> termCounts(Map<String, RoaringBitmap> values, RoaringBitmap docs, int size) {
+        List<Map.Entry<String, Long>> counts = new ArrayList<>();
+        values.forEach((value, bitmap) -> {
+            long count = RoaringBitmap.andCardinality(bitmap, docs);
+            if (count > 0) {
+                counts.add(Map.entry(value, count));
+            }
+        });
+        counts.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+        List<Map<String, Object>> buckets = new ArrayList<>();
+        for (Map.Entry<String, Long> count : counts.subList(0, Math.min(size, counts.size()))) {
+            buckets.add(Map.of("key", count.getKey(), "count", count.getValue()));
+        }
+        return buckets;
+    }
+
+    private interface DoubleColumn {
+        double value(int doc);
+    }
+
+    private static List<Map<String, Object>> histogram(RoaringBitmap docs, DoubleColumn column, double interval) {
+        TreeMap<Double, Long> counts = new TreeMap<>();
+        IntIterator it = docs.getIntIterator();
+        while (it.hasNext()) {
+            double value = column.value(it.next());
+            if (!Double.isNaN(value)) {
+                counts.merge(Math.floor(value / interval) * interval, 1L, Long::sum);
+            }
+        }
+        List<Map<String, Object>> buckets = new ArrayList<>();
+        counts.forEach((from, count) -> buckets.add(Map.of("from", from, "count", count)));
+        return buckets;
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Inverted index of one text field: sorted terms, and per term the ascending ids of the documents
+     * containing it with the term's frequency in each.
+     */
+    private static final class TextField {
+
+        private final String[] terms;
+        private final int[][] postingDocs;
+        private final int[][] postingFreqs;
+        private final int[] lengths; // tokens per document
+        private final float averageLength;
+        private final int docCount; // documents with at least one token
+
+        private TextField(String[] terms, int[][] postingDocs, int[][] postingFreqs, int[] lengths) {
+            this.terms = terms;
+            this.postingDocs = postingDocs;
+            this.postingFreqs = postingFreqs;
+            this.lengths = lengths;
+            long totalLength = 0;
+            int withField = 0;
+            for (int length : lengths) {
+                totalLength += length;
+                withField += length > 0 ? 1 : 0;
+            }
+            this.docCount = withField;
+            this.averageLength = withField > 0 ? (float) totalLength / withField : 1f;
+        }
+
+        /**
+         * BM25 of every document for {@code queryTerms} (a should-clause per term, each term's fuzzy variants
+         * scored by their best match); documents matching any term are added to {@code matched}.
+         */
+        float[] score(List<String> queryTerms, RoaringBitmap matched, boolean fuzzy) {
+            float[] fieldScores = new float[lengths.length];
+            float[] best = new float[lengths.length];
+            RoaringBitmap touched = new RoaringBitmap();
+            for (String queryTerm : queryTerms) {
+                for (Expansion expansion : expand(queryTerm, fuzzy)) {
+                    int[] docs = postingDocs[expansion.term()];
+                    int[] freqs = postingFreqs[expansion.term()];
+                    float weight = expansion.boost() * idf(docs.length);
+                    for (int i = 0; i < docs.length; i++) {
+                        int doc = docs[i];
+                        float score = weight * freqs[i] / (freqs[i] + K1 * (1 - B + B * lengths[doc] / averageLength));
+                        if (score > best[doc]) {
+                            best[doc] = score;
+                        }
+                        touched.add(doc);
+                    }
+                }
+                IntIterator it = touched.getIntIterator();
+                while (it.hasNext()) {
+                    int doc = it.next();
+                    fieldScores[doc] += best[doc];
+                    best[doc] = 0;
+                }
+                matched.or(touched);
+                touched.clear();
+            }
+            return fieldScores;
+        }
+
+        private float idf(int docFreq) {
+            return (float) Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+        }
+
+        private record Expansion(int term, int distance, float boost) {
+        }
+
+        /**
+         * Index terms within {@code fuzziness: AUTO} of {@code queryTerm}, closest first, boosted like Lucene's
+         * fuzzy query: {@code 1 - distance / min(length)}; only {@code queryTerm} itself unless {@code fuzzy}.
+         */
+        private List<Expansion> expand(String queryTerm, boolean fuzzy) {
+            int maxEdits = fuzzy ? CourseTextAnalyzer.autoFuzziness(queryTerm) : 0;
+            if (maxEdits == 0) {
+                int exact = Arrays.binarySearch(terms, queryTerm);
+                return exact >= 0 ? List.of(new Expansion(exact, 0, 1f)) : List.of();
+            }
+            List<Expansion> expansions = new ArrayList<>();
+            for (int t = 0; t < terms.length; t++) {
+                int distance = CourseTextAnalyzer.distance(queryTerm, terms[t], maxEdits);
+                if (distance <= maxEdits) {
+                    float boost = 1f - (float) distance / Math.min(queryTerm.length(), terms[t].length());
+                    expansions.add(new Expansion(t, distance, boost));
+                }
+            }
+            if (expansions.size() > MAX_EXPANSIONS) {
+                expansions.sort(Comparator.comparingInt(Expansion::distance).thenComparingInt(Expansion::term));
+                return expansions.subList(0, MAX_EXPANSIONS);
+            }
+            return expansions;
+        }
+
+        private static final class Builder {
+
+            private final TextField base; // null when building from scratch
+            private final Map<String, Postings> postings = new HashMap<>(); // of every term edited since base
+            private final int[] lengths;
+            private final Function<String, List<String>> analyzer;
+
+            Builder(TextField base, int documents, Function<String, List<String>> analyzer) {
+                this.base = base;
+                this.lengths = base != null ? Arrays.copyOf(base.lengths, documents) : new int[documents];
+                this.analyzer = analyzer;
+            }
+
+            void add(int doc, String text) {
+                List<String> tokens = analyzer.apply(text);
+                lengths[doc] = tokens.size();
+                Map<String, Integer> frequencies = new HashMap<>();
+                for (String token : tokens) {
+                    frequencies.merge(token, 1, Integer::sum);
+                }
+                frequencies.forEach((term, freq) -> postings(term).add(doc, freq));
+            }
+
+            /**
+             * Takes {@code doc} out of the postings of the terms of {@code text}, its previously indexed value.
+             */
+            void remove(int doc, String text) {
+                lengths[doc] = 0;
+                for (String term : new HashSet<>(analyzer.apply(text))) {
+                    postings(term).remove(doc);
+                }
+            }
+
+            private Postings postings(String term) {
+                return postings.computeIfAbsent(term, t -> {
+                    int existing = base != null ? Arrays.binarySearch(base.terms, t) : -1;
+                    return existing >= 0 ? new Postings(base.postingDocs[existing], base.postingFreqs[existing]) : new Postings();
+                });
+            }
+
+            /**
+             * Merges the edited terms into the sorted terms of {@code base}; unedited postings are shared with it.
+             */
+            TextField build() {
+                String[] baseTerms = base != null ? base.terms : new String[0];
+                String[] added = postings.keySet().stream()
+                        .filter(term -> Arrays.binarySearch(baseTerms, term) < 0)
+                        .sorted()
+                        .toArray(String[]::new);
+                List<String> terms = new ArrayList<>(baseTerms.length + added.length);
+                List<int[]> docs = new ArrayList<>(baseTerms.length + added.length);
+                List<int[]> freqs = new ArrayList<>(baseTerms.length + added.length);
+                int b = 0;
+                int a = 0;
+                while (b < baseTerms.length || a < added.length) {
+                    boolean fromBase = a == added.length || (b < baseTerms.length && baseTerms[b].compareTo(added[a]) < 0);
+                    String term = fromBase ? baseTerms[b] : added[a++];
+                    Postings edited = postings.get(term);
+                    if (edited == null) {
+                        terms.add(term);
+                        docs.add(base.postingDocs[b]);
+                        freqs.add(base.postingFreqs[b]);
+                    } else if (edited.size > 0) {
+                        terms.add(term);
+                        docs.add(Arrays.copyOf(edited.docs, edited.size));
+                        freqs.add(Arrays.copyOf(edited.freqs, edited.size));
+                    }
+                    if (fromBase) {
+                        b++;
+                    }
+                }
+                return new TextField(terms.toArray(String[]::new), docs.toArray(int[][]::new), freqs.toArray(int[][]::new), lengths);
+            }
+        }
+
+        private static final class Postings {
+            int[] docs;
+            int[] freqs;
+            int size;
+
+            Postings() {
+                this.docs = new int[4];
+                this.freqs = new int[4];
+            }
+
+            Postings(int[] docs, int[] freqs) {
+                this.docs = docs.clone();
+                this.freqs = freqs.clone();
+                this.size = docs.length;
+            }
+
+            /**
+             * Adds {@code doc}, keeping the ids ascending; a build adds them in order, so this appends.
+             */
+            void add(int doc, int freq) {
+                if (size == docs.length) {
+                    docs = Arrays.copyOf(docs, Math.max(4, size * 2));
+                    freqs = Arrays.copyOf(freqs, docs.length);
+                }
+                int at = size == 0 || docs[size - 1] < doc ? size : -Arrays.binarySearch(docs, 0, size, doc) - 1;
+                System.arraycopy(docs, at, docs, at + 1, size - at);
+                System.arraycopy(freqs, at, freqs, at + 1, size - at);
+                docs[at] = doc;
+                freqs[at] = freq;
+                size++;
+            }
+
+            void remove(int doc) {
+                int at = Arrays.binarySearch(docs, 0, size, doc);
+                if (at >= 0) {
+                    System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+                    System.arraycopy(freqs, at + 1, freqs, at, size - at - 1);
+                    size--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseChange;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.loader.CourseChangeEvent;
+import com.undoschool.course_search.loader.CourseChangeFeed;
+import com.undoschool.course_search.loader.CourseIndexManager;
+import com.undoschool.course_search.loader.CourseSource;
+import com.undoschool.course_search.loader.IndexGenerationEvent;
+import com.undoschool.course_search.service.SearchCursorCodec.SearchCursor;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link CourseSearchBackend} over an {@link InMemoryCourseIndex}.
+ * <p>
+ * With {@code course-search.backend.primary=memory} the index is loaded straight from the configured loader
+ * source at startup, and no Elasticsearch is needed to search or suggest. Otherwise, with
+ * {@code backend.fallback} on, it holds a copy of the live Elasticsearch generation (re-read whenever a
+ * new generation is published) for {@link CourseSearchService} to serve while Elasticsearch is down.
+ * In both modes {@link CourseChangeEvent}s are applied with {@link InMemoryCourseIndex#withChanges}, which
+ * analyzes only the changed courses; suggestions are rebuilt only for changes to their source fields.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InMemoryCourseSearchBackend implements CourseSearchBackend {
+
+    static final String INDEX_NAME = "memory"; // the generation name sources see when feeding this backend
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final SearchCursorCodec searchCursorCodec;
+    private final SearchResultCache searchResultCache;
+    private final CourseSuggestService courseSuggestService;
+    private final CourseSearchProperties properties;
+    private final List<CourseSource> sources;
+    private final SearchMetrics metrics;
+    private final ObjectMapper objectMapper;
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "memory-index-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile InMemoryCourseIndex index; // swapped atomically once a load completes
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    @Override
+    public Map<String, Object> search(CourseSearchCriteria criteria) throws IOException {
+        InMemoryCourseIndex current = requireIndex();
+        List<FieldValue> searchAfter = null;
+        if (criteria.getCursor() != null) {
+            SearchCursor cursor = searchCursorCodec.decode(criteria.getCursor());
+            if (!SearchCursorCodec.fingerprint(criteria).equals(cursor.criteria())) {
+                throw new IllegalArgumentException("Cursor was issued for a different query");
+            }
+            searchAfter = cursor.searchAfter();
+        }
+        boolean facets = Boolean.TRUE.equals(criteria.getFacets()) && searchAfter == null;
+        InMemoryCourseIndex.Page page = current.search(criteria, searchAfter, facets, properties);
+        metrics.recordHits(page.courses().size());
+
+        String nextCursor = page.lastSort() == null ? null
+                : searchCursorCodec.encode(new SearchCursor(page.lastSort(), null, SearchCursorCodec.fingerprint(criteria)));
+        return CourseSearchBackend.result(page.courses(), page.total(), page.totalIsLowerBound(), nextCursor, page.facets());
+    }
+
+    @Override
+    public Map<String, Object> facets(CourseSearchCriteria criteria) throws IOException {
+        CourseSearchCriteria countOnly = criteria.normalized(0, 0);
+        countOnly.setPage(0);
+        countOnly.setSize(0);
+        InMemoryCourseIndex.Page page = requireIndex().search(countOnly, null, true, properties);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        CourseSearchBackend.putTotal(result, page.total(), page.totalIsLowerBound());
+        result.put("facets", page.facets());
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        CourseSearchProperties.Backend settings = properties.getBackend();
+        if (settings.isMemoryPrimary()) {
+            loadExecutor.execute(this::loadFromSource);
+        } else if (settings.isFallback()) {
+            scheduleCopy(CourseIndexManager.ALIAS);
+        }
+    }
+
+    @EventListener
+    public void onIndexGeneration(IndexGenerationEvent event) {
+        if (!properties.getBackend().isMemoryPrimary() && properties.getBackend().isFallback()) {
+            scheduleCopy(event.index());
+        }
+    }
+
+    @EventListener
+    public void onCourseChange(CourseChangeEvent event) {
+        CourseSearchProperties.Backend settings = properties.getBackend();
+        if (settings.isMemoryPrimary() || settings.isFallback()) {
+            // queued behind any load or copy, which would otherwise swap in data without these changes
+            loadExecutor.execute(() -> {
+                try {
+                    applyChanges(event);
+                } catch (Exception e) {
+                    log.warn("Could not apply {} course changes in memory: {}", event.changes().size(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Swaps in an index with {@code event}'s changes applied to the current courses.
+     */
+    void applyChanges(CourseChangeEvent event) {
+        InMemoryCourseIndex current = index;
+        if (current == null) {
+            return; // nothing loaded yet; the pending load reads the changed data
+        }
+        Map<String, CourseDocument> changed = new LinkedHashMap<>(); // null for a deleted course
+        for (CourseChange change : event.changes()) {
+            if (change.isDelete()) {
+                changed.put(change.getId(), null);
+            } else {
+                CourseDocument course = changed.containsKey(change.getId()) ? changed.get(change.getId()) : current.document(change.getId());
+                changed.put(change.getId(), CourseChangeFeed.apply(course, change, objectMapper));
+            }
+        }
+        InMemoryCourseIndex updated = current.withChanges(changed);
+        index = updated;
+        if (properties.getBackend().isMemoryPrimary()) {
+            searchResultCache.invalidateAll(); // pages cached between the event and the swap
+            if (event.affectsSuggestions()) {
+                courseSuggestService.rebuild(updated.documents());
+            }
+        }
+        log.debug("Applied {} course changes in memory", event.changes().size());
+    }
+
+    private void scheduleCopy(String indexName) {
+        loadExecutor.execute(() -> {
+            try {
+                copyFromElasticsearch(indexName);
+            } catch (Exception e) {
+                log.warn("Could not copy '{}' into memory; fallback keeps its previous data: {}", indexName, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reads every course of {@code indexName} and swaps in an index built from them.
+     */
+    void copyFromElasticsearch(String indexName) throws IOException {
+        long start = System.nanoTime();
+        List<CourseDocument> courses = new ArrayList<>();
+        CourseIndexScan.scan(elasticsearchClient, indexName, null, properties.getPaging().getPitKeepAlive(), courses::add);
+        index = InMemoryCourseIndex.build(courses);
+        log.info("Copied '{}' into memory for fallback: {} courses in {} ms", indexName, index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reads every course of the configured source and swaps in an index built from them. A memory load
+     * cannot be resumed, so a checkpoint a source keeps for it is discarded both before and after feeding.
+     */
+    void loadFromSource() {
+        String name = properties.getLoader().getSource();
+        try {
+            CourseSource source = sources.stream()
+                    .filter(s -> s.name().equalsIgnoreCase(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Unknown course-search.loader.source '" + name + "'"));
+            long start = System.nanoTime();
+            if (INDEX_NAME.equals(source.resumableIndex())) {
+                source.completed(); // left by a load that died half way; its prefix is not in this process
+            }
+            ConcurrentLinkedQueue<CourseDocument> courses = new ConcurrentLinkedQueue<>();
+            source.feed(INDEX_NAME, (course, onIndexed) -> {
+                courses.add(course);
+                if (onIndexed != null) {
+                    onIndexed.run();
+                }
+            });
+            index = InMemoryCourseIndex.build(courses);
+            source.completed();
+            searchResultCache.invalidateAll();
+            courseSuggestService.rebuild(courses);
+            log.info("Loaded {} courses from '{}' into memory in {} ms", index.size(), source.name(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Could not load courses into memory from '{}': {}", name, e.getMessage(), e);
+        }
+    }
+
+    private InMemoryCourseIndex requireIndex() throws IOException {
+        InMemoryCourseIndex current = index;
+        if (current == null) {
+            throw new IOException("In-memory course index is not loaded yet");
+        }
+        return current;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+}
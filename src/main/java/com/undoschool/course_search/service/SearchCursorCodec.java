@@ -0,0 +1,137 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes {@code search_after} positions as opaque, HMAC-signed cursor strings.
+ * A cursor is {@code base64url(json) + "." + base64url(hmac)} and is bound to the criteria fingerprint
+ * it was issued for, so it cannot be replayed against a different query or sort.
+ */
+@Component
+public class SearchCursorCodec {
+
+    /**
+     * Decoded cursor: the sort values of the last hit returned, the point-in-time to continue in (may be
+     * {@code null} for cursors issued from a shallow page), and the fingerprint of the issuing criteria.
+     */
+    public record SearchCursor(List<FieldValue> searchAfter, String pitId, String criteria) {
+    }
+
+    private record Payload(List<Object> after, String pit, String criteria) {
+    }
+
+    private static final int FINGERPRINT_BYTES = 16;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final byte[] secret;
+
+    public SearchCursorCodec(CourseSearchProperties properties) {
+        String configured = properties.getPaging().getCursorSecret();
+        if (configured == null || configured.isBlank()) {
+            // Without a configured secret, cursors are only valid within this process.
+            this.secret = new byte[32];
+            new SecureRandom().nextBytes(this.secret);
+        } else {
+            this.secret = configured.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    public String encode(SearchCursor cursor) {
+        List<Object> after = new ArrayList<>(cursor.searchAfter().size());
+        for (FieldValue value : cursor.searchAfter()) {
+            after.add(value._get());
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(new Payload(after, cursor.pitId(), cursor.criteria()));
+            Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+            return encoder.encodeToString(json) + "." + encoder.encodeToString(sign(json));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode search cursor", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed or its signature does not match
+     */
+    public SearchCursor decode(String cursor) {
+        int dot = cursor.indexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] json = decoder.decode(cursor.substring(0, dot));
+            byte[] signature = decoder.decode(cursor.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(json))) {
+                throw new IllegalArgumentException("Invalid cursor signature");
+            }
+            Payload payload = objectMapper.readValue(json, Payload.class);
+            List<FieldValue> after = new ArrayList<>(payload.after().size());
+            for (Object value : payload.after()) {
+                after.add(toFieldValue(value));
+            }
+            return new SearchCursor(after, payload.pit(), payload.criteria());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * Identifies the query a cursor belongs to: everything in the normalized criteria except the page position,
+     * as the first 128 bits of a SHA-256 of their canonical string, so that no other query can be made to match.
+     */
+    static String fingerprint(CourseSearchCriteria criteria) {
+        CourseSearchCriteria query = criteria.normalized(0, 0);
+        query.setPage(null);
+        query.setSize(null);
+        query.setCursor(null);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(query.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, FINGERPRINT_BYTES));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * A sort value as Jackson reads it from JSON.
+     */
+    static FieldValue toFieldValue(Object value) {
+        if (value == null) {
+            return FieldValue.NULL;
+        } else if (value instanceof Integer || value instanceof Long) {
+            return FieldValue.of(((Number) value).longValue());
+        } else if (value instanceof Number number) {
+            return FieldValue.of(number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            return FieldValue.of(bool);
+        }
+        return FieldValue.of(value.toString());
+    }
+
+    private byte[] sign(byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
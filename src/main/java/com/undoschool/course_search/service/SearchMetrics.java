@@ -0,0 +1,125 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search-path meters. Percentile histograms and their bounds are configured for every {@code course.*}
+ * meter under {@code management.metrics.distribution} rather than here.
+ * <ul>
+ *     <li>{@code course.search.es.client}: Elasticsearch calls as the client observed them, tagged
+ *     {@code operation}; {@code course.search.es.took} is the server-side {@code took} of the same calls and
+ *     {@code course.search.es.overhead} the difference (network, queueing and (de)serialization).</li>
+ *     <li>{@code course.search.backend}: a search on a backend, tagged {@code backend} and {@code outcome}.</li>
+ *     <li>{@code course.search.stage}: request construction ({@code stage=build}) and response mapping
+ *     ({@code stage=map}), sampled at {@code metrics.stage-sample-rate}.</li>
+ *     <li>{@code course.search.hits}: courses returned per page; {@code course.suggest}: suggest latency
+ *     tagged {@code source=trie|elasticsearch}.</li>
+ * </ul>
+ */
+@Component
+public class SearchMetrics {
+
+    private record ElasticsearchTimers(Timer client, Timer took, Timer overhead) {
+    }
+
+    private final MeterRegistry registry;
+    private final double stageSampleRate;
+    // meters are looked up once per tag combination instead of through the registry on every call
+    private final Map<String, ElasticsearchTimers> elasticsearchTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> backendTimers = new ConcurrentHashMap<>();
+    private final Timer buildStage;
+    private final Timer mapStage;
+    private final DistributionSummary hits;
+    private final Timer trieSuggest;
+    private final Timer elasticsearchSuggest;
+
+    public SearchMetrics(MeterRegistry registry, CourseSearchProperties properties) {
+        this.registry = registry;
+        this.stageSampleRate = properties.getMetrics().getStageSampleRate();
+        this.buildStage = stageTimer("build");
+        this.mapStage = stageTimer("map");
+        this.hits = DistributionSummary.builder("course.search.hits")
+                .description("Courses returned per search page")
+                .register(registry);
+        this.trieSuggest = suggestTimer("trie");
+        this.elasticsearchSuggest = suggestTimer("elasticsearch");
+    }
+
+    /**
+     * Start time for a sampled stage measurement, or 0 when this call is not sampled.
+     */
+    long startStage() {
+        return stageSampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < stageSampleRate ? System.nanoTime() : 0;
+    }
+
+    void recordBuild(long stageStart) {
+        if (stageStart != 0) {
+            buildStage.record(System.nanoTime() - stageStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void recordMap(long stageStart) {
+        if (stageStart != 0) {
+            mapStage.record(System.nanoTime() - stageStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records one Elasticsearch call that started at {@code start} (nanos) and returned {@code response}.
+     */
+    void recordElasticsearch(String operation, long start, ResponseBody<?> response) {
+        recordElasticsearch(operation, start, response.took());
+    }
+
+    void recordElasticsearch(String operation, long start, long tookMillis) {
+        long clientNanos = System.nanoTime() - start;
+        long tookNanos = TimeUnit.MILLISECONDS.toNanos(tookMillis);
+        ElasticsearchTimers timers = elasticsearchTimers.computeIfAbsent(operation, op -> new ElasticsearchTimers(
+                Timer.builder("course.search.es.client").tag("operation", op).register(registry),
+                Timer.builder("course.search.es.took").tag("operation", op).register(registry),
+                Timer.builder("course.search.es.overhead").tag("operation", op).register(registry)));
+        timers.client().record(clientNanos, TimeUnit.NANOSECONDS);
+        timers.took().record(tookNanos, TimeUnit.NANOSECONDS);
+        timers.overhead().record(Math.max(0, clientNanos - tookNanos), TimeUnit.NANOSECONDS);
+    }
+
+    void recordBackend(String backend, String outcome, long start) {
+        backendTimers.computeIfAbsent(backend + '/' + outcome, key -> Timer.builder("course.search.backend")
+                        .tag("backend", backend)
+                        .tag("outcome", outcome)
+                        .register(registry))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    void recordHits(int count) {
+        hits.record(count);
+    }
+
+    void recordSuggest(boolean fromTrie, long start) {
+        (fromTrie ? trieSuggest : elasticsearchSuggest).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("course.search.stage")
+                .tag("stage", stage)
+                .description("Sampled time spent building requests and mapping responses")
+                .register(registry);
+    }
+
+    private Timer suggestTimer(String source) {
+        return Timer.builder("course.suggest")
+                .tag("source", source)
+                .description("Suggest latency")
+                .register(registry);
+    }
+}
@@ -0,0 +1,223 @@
+package com.undoschool.course_search.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.loader.CourseChangeEvent;
+import com.undoschool.course_search.loader.IndexGenerationEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Bounded (W-TinyLFU), TTL-limited cache of search results keyed on normalized criteria.
+ * Entries are futures, so concurrent misses for the same key wait on a single Elasticsearch call
+ * instead of each issuing their own. Everything is dropped when a new index generation is published or courses change.
+ * Results marked {@code degraded} (served by a fallback backend) are handed to waiting callers but not kept.
+ * Hit, miss and eviction counts are exported as {@code cache.*} metrics with {@code cache=courseSearch}.
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        Map<String, Object> load(CourseSearchCriteria criteria) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface BatchLoader {
+        List<CourseSearchBackend.BatchEntry> load(List<CourseSearchCriteria> criteria) throws IOException;
+    }
+
+    private final boolean enabled;
+    private final AsyncCache<CourseSearchCriteria, Map<String, Object>> cache;
+    // bumped on every invalidation so loads that started against the previous generation are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchResultCache(CourseSearchProperties properties, MeterRegistry meterRegistry) {
+        CourseSearchProperties.Cache settings = properties.getCache();
+        this.enabled = settings.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfterWrite(settings.getTtl())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "courseSearch");
+    }
+
+    /**
+     * Returns the cached result for {@code key} (which must already be normalized), or runs {@code loader}
+     * on the calling thread and caches what it returns.
+     */
+    public Map<String, Object> get(CourseSearchCriteria key, Loader loader) throws IOException {
+        if (!enabled) {
+            return loader.load(key);
+        }
+        CompletableFuture<Map<String, Object>> pending = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = cache.asMap().putIfAbsent(key, pending);
+        if (existing != null) {
+            return join(existing);
+        }
+
+        long startedGeneration = generation.get();
+        try {
+            Map<String, Object> value = loader.load(key);
+            pending.complete(value);
+            if (generation.get() != startedGeneration || isDegraded(value)) {
+                cache.asMap().remove(key, pending);
+            }
+            return value;
+        } catch (IOException | RuntimeException e) {
+            // failed futures are removed by the cache, so the next caller retries
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Batch variant of {@link #get} for distinct normalized keys: cached entries are returned as they are
+     * (with {@code tookMillis} 0), keys already being loaded are waited on, and the rest are loaded with a
+     * single call to {@code loader}. Entries that fail are not cached.
+     */
+    public Map<CourseSearchCriteria, CourseSearchBackend.BatchEntry> getAll(List<CourseSearchCriteria> keys,
+                                                                            BatchLoader loader) throws IOException {
+        Map<CourseSearchCriteria, CourseSearchBackend.BatchEntry> entries = new HashMap<>();
+        if (!enabled) {
+            putAll(entries, keys, loader.load(keys));
+            return entries;
+        }
+        Map<CourseSearchCriteria, CompletableFuture<Map<String, Object>>> pending = new LinkedHashMap<>();
+        Map<CourseSearchCriteria, CompletableFuture<Map<String, Object>>> existing = new LinkedHashMap<>();
+        for (CourseSearchCriteria key : keys) {
+            CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+            CompletableFuture<Map<String, Object>> present = cache.asMap().putIfAbsent(key, future);
+            if (present != null) {
+                existing.put(key, present);
+            } else {
+                pending.put(key, future);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            long startedGeneration = generation.get();
+            List<CourseSearchCriteria> missing = new ArrayList<>(pending.keySet());
+            List<CourseSearchBackend.BatchEntry> loaded;
+            try {
+                loaded = loader.load(missing);
+            } catch (IOException | RuntimeException e) {
+                pending.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            }
+            for (int i = 0; i < missing.size(); i++) {
+                CourseSearchCriteria key = missing.get(i);
+                CourseSearchBackend.BatchEntry entry = loaded.get(i);
+                CompletableFuture<Map<String, Object>> future = pending.get(key);
+                if (entry.error() != null) {
+                    future.completeExceptionally(entry.error());
+                } else {
+                    future.complete(entry.result());
+                    if (generation.get() != startedGeneration || isDegraded(entry.result())) {
+                        cache.asMap().remove(key, future);
+                    }
+                }
+                entries.put(key, entry);
+            }
+        }
+
+        for (Map.Entry<CourseSearchCriteria, CompletableFuture<Map<String, Object>>> present : existing.entrySet()) {
+            try {
+                entries.put(present.getKey(), new CourseSearchBackend.BatchEntry(join(present.getValue()), null, 0));
+            } catch (IOException | RuntimeException e) {
+                entries.put(present.getKey(), CourseSearchBackend.BatchEntry.failed(e));
+            }
+        }
+        return entries;
+    }
+
+    private static void putAll(Map<CourseSearchCriteria, CourseSearchBackend.BatchEntry> entries,
+                               List<CourseSearchCriteria> keys, List<CourseSearchBackend.BatchEntry> loaded) {
+        for (int i = 0; i < keys.size(); i++) {
+            entries.put(keys.get(i), loaded.get(i));
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #get}: {@code loader} is invoked on the calling thread to start the load,
+     * and concurrent callers for the same key share the returned future. Like {@link #get}, a result that is
+     * degraded or loaded across an invalidation is handed to those callers but not kept.
+     */
+    public CompletableFuture<Map<String, Object>> getAsync(CourseSearchCriteria key,
+                                                           Function<CourseSearchCriteria, CompletableFuture<Map<String, Object>>> loader) {
+        if (!enabled) {
+            return loader.apply(key);
+        }
+        long startedGeneration = generation.get();
+        AtomicReference<CompletableFuture<Map<String, Object>>> started = new AtomicReference<>();
+        CompletableFuture<Map<String, Object>> future = cache.get(key, (k, executor) -> {
+            started.set(loader.apply(k));
+            return started.get();
+        });
+        if (started.get() != null) {
+            future.thenAccept(value -> {
+                if (generation.get() != startedGeneration || isDegraded(value)) {
+                    cache.asMap().remove(key, future);
+                }
+            });
+        }
+        return future;
+    }
+
+    @EventListener
+    public void onIndexGeneration(IndexGenerationEvent event) {
+        invalidateAll();
+        log.debug("Search result cache cleared for new generation '{}'", event.index());
+    }
+
+    @EventListener
+    public void onCourseChange(CourseChangeEvent event) {
+        // any cached page may contain, or now miss, a changed course
+        invalidateAll();
+        log.debug("Search result cache cleared after {} course changes", event.changes().size());
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.synchronous().invalidateAll();
+    }
+
+    private static boolean isDegraded(Map<String, Object> value) {
+        return Boolean.TRUE.equals(value.get("degraded"));
+    }
+
+    private static Map<String, Object> join(CompletableFuture<Map<String, Object>> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new UncheckedIOException(new IOException(cause));
+        }
+    }
+}
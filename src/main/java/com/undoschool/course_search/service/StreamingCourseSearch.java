@@ -0,0 +1,247 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.service.SearchCursorCodec.SearchCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lean variant of {@link CourseSearchService#searchCourses} for {@code /api/search/stream}. The page request
+ * is sent over the low-level {@link RestClient} and the {@code _source} of every hit is copied token by
+ * token from the Elasticsearch response into the HTTP output, so no {@code SearchResponse}, course objects
+ * or result map are built. The output has the shape of {@code /api/search} without {@code facets}.
+ * <p>
+ * Faceted pages, cursor walks, the in-memory backend and Elasticsearch failures before the first byte is
+ * written go through {@link CourseSearchService} (and so the result cache and fallback) instead, and their
+ * result is serialized as usual. Streamed pages are never cached. A text query whose exact pass matches
+ * nothing is answered by streaming its fuzzy pass instead.
+ */
+@Slf4j
+@Service
+public class StreamingCourseSearch {
+
+    // everything else in the response (_index, _id, _score, _shards, ...) is dropped by Elasticsearch
+    private static final String FILTER_PATH = "took,hits.total,hits.hits._source,hits.hits.sort";
+
+    /**
+     * A response body that is written once the status has been committed.
+     */
+    @FunctionalInterface
+    public interface Output {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private final CourseSearchService courseSearchService;
+    private final ElasticsearchCourseSearchBackend elasticsearchBackend;
+    private final RestClient restClient;
+    private final JsonpMapper jsonpMapper;
+    private final SearchCursorCodec searchCursorCodec;
+    private final SearchMetrics metrics;
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    public StreamingCourseSearch(CourseSearchService courseSearchService,
+                                 ElasticsearchCourseSearchBackend elasticsearchBackend,
+                                 RestClient restClient,
+                                 ElasticsearchClient elasticsearchClient,
+                                 SearchCursorCodec searchCursorCodec,
+                                 SearchMetrics metrics,
+                                 ObjectMapper objectMapper) {
+        this.courseSearchService = courseSearchService;
+        this.elasticsearchBackend = elasticsearchBackend;
+        this.restClient = restClient;
+        this.jsonpMapper = elasticsearchClient._jsonpMapper();
+        this.searchCursorCodec = searchCursorCodec;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Runs the search and returns the body to write.
+     *
+     * @throws IllegalArgumentException for invalid criteria or cursors
+     */
+    public Output search(CourseSearchCriteria criteria) throws IOException {
+        CourseSearchCriteria normalized = courseSearchService.normalize(criteria);
+        if (courseSearchService.isMemoryPrimary() || Boolean.TRUE.equals(normalized.getFacets())
+                || courseSearchService.requiresCursorWalk(normalized)) {
+            return write(courseSearchService.searchCourses(normalized));
+        }
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = restClient.performRequest(pageRequest(normalized));
+        } catch (IOException e) {
+            log.debug("Streamed search failed ({}), answering through the search service", e.getMessage());
+            return write(courseSearchService.searchCourses(normalized));
+        }
+        boolean fallback = elasticsearchBackend.usesFuzzyFallback(normalized);
+        return out -> {
+            boolean written;
+            try (InputStream source = response.getEntity().getContent()) {
+                written = writePage(normalized, source, out, start, !fallback);
+            }
+            if (!written) {
+                long fuzzyStart = System.nanoTime();
+                Response fuzzy = restClient.performRequest(pageRequest(normalized, true));
+                try (InputStream source = fuzzy.getEntity().getContent()) {
+                    writePage(normalized, source, out, fuzzyStart, true);
+                }
+            }
+        };
+    }
+
+    private Request pageRequest(CourseSearchCriteria criteria) {
+        return pageRequest(criteria, false);
+    }
+
+    private Request pageRequest(CourseSearchCriteria criteria, boolean fuzzy) {
+        SearchRequest search = elasticsearchBackend.buildPageRequest(criteria, fuzzy);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        try (jakarta.json.stream.JsonGenerator generator = jsonpMapper.jsonProvider().createGenerator(body)) {
+            search.serialize(generator, jsonpMapper);
+        }
+        Request request = new Request("POST", "/" + String.join(",", search.index()) + "/_search");
+        request.addParameter("filter_path", FILTER_PATH);
+        request.setEntity(new NByteArrayEntity(body.toByteArray(), ContentType.APPLICATION_JSON));
+        return request;
+    }
+
+    private Output write(Map<String, Object> result) {
+        return out -> {
+            try (JsonGenerator generator = createGenerator(out)) {
+                objectMapper.writeValue(generator, result);
+            }
+        };
+    }
+
+    /**
+     * Copies the hits of a {@code _search} response (filtered to {@link #FILTER_PATH}) from {@code source} to
+     * {@code out} as {@code {courses, total, totalLabel, cursor?}}. Nothing is written until {@code hits.total}
+     * has been read, which Elasticsearch sends before the hits.
+     *
+     * @param emptyAllowed write a page that matched nothing; otherwise return {@code false} without writing
+     * @return whether the page was written
+     */
+    boolean writePage(CourseSearchCriteria criteria, InputStream source, OutputStream out, long start,
+                      boolean emptyAllowed) throws IOException {
+        long took = 0;
+        long total = 0;
+        boolean totalIsLowerBound = false;
+        int count = 0;
+        List<?> lastSort = null;
+        JsonGenerator generator = null;
+        try (JsonParser parser = jsonFactory.createParser(source)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (name.equals("took")) {
+                    took = parser.getLongValue();
+                } else if (name.equals("hits")) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        parser.nextToken();
+                        if (field.equals("total")) {
+                            Map<?, ?> hitsTotal = objectMapper.readValue(parser, Map.class);
+                            total = ((Number) hitsTotal.get("value")).longValue();
+                            totalIsLowerBound = "gte".equals(hitsTotal.get("relation"));
+                            if (total == 0 && !emptyAllowed) {
+                                metrics.recordElasticsearch("stream", start, took);
+                                return false;
+                            }
+                        } else if (field.equals("hits")) {
+                            generator = startPage(generator, out);
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                    String hitField = parser.currentName();
+                                    parser.nextToken();
+                                    if (hitField.equals("_source")) {
+                                        generator.copyCurrentStructure(parser);
+                                        count++;
+                                    } else if (hitField.equals("sort")) {
+                                        lastSort = objectMapper.readValue(parser, List.class);
+                                    } else {
+                                        parser.skipChildren();
+                                    }
+                                }
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            generator = startPage(generator, out);
+            generator.writeEndArray();
+            generator.writeNumberField("total", total);
+            generator.writeStringField("totalLabel", CourseSearchBackend.totalLabel(total, totalIsLowerBound));
+            if (count == criteria.getSize() && count > 0 && lastSort != null) {
+                List<FieldValue> after = new ArrayList<>(lastSort.size());
+                for (Object value : lastSort) {
+                    after.add(SearchCursorCodec.toFieldValue(value));
+                }
+                generator.writeStringField("cursor", searchCursorCodec.encode(
+                        new SearchCursor(after, null, SearchCursorCodec.fingerprint(criteria))));
+            }
+            if (elasticsearchBackend.isRescored(criteria)) {
+                generator.writeBooleanField("rescored", true); // streamed pages are always from/size pages
+            }
+            generator.writeEndObject();
+        } finally {
+            if (generator != null) {
+                generator.close();
+            }
+        }
+        metrics.recordElasticsearch("stream", start, took);
+        metrics.recordHits(count);
+        return true;
+    }
+
+    private JsonGenerator startPage(JsonGenerator generator, OutputStream out) throws IOException {
+        if (generator != null) {
+            return generator;
+        }
+        JsonGenerator started = createGenerator(out);
+        started.writeStartObject();
+        started.writeArrayFieldStart("courses");
+        return started;
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        // the servlet container owns the response stream
+        return jsonFactory.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected search response: expected " + expected + " but found " + actual);
+        }
+    }
+}
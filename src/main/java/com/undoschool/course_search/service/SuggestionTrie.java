@@ -0,0 +1,201 @@
+package com.undoschool.course_search.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable prefix trie over weighted suggestion entries, flattened into primitive arrays.
+ * <p>
+ * Each entry is matched by its {@code input} and suggests its {@code output}, so a course can be reached
+ * through several inputs (e.g. every word suffix of its title) and still be suggested once, by title.
+ * Nodes are numbered breadth-first so the children of a node are contiguous and sorted by label;
+ * a lookup binary-searches one child range per prefix character. Every node stores the ids of the
+ * {@code topK} heaviest entries below it with distinct outputs, so answering a prefix is a walk plus an
+ * array copy, with no per-request allocation in {@link #lookup}.
+ */
+public final class SuggestionTrie {
+
+    /**
+     * One way of reaching a suggestion: typing a prefix of {@code input} suggests {@code output}.
+     */
+    public record Entry(String input, String output, int weight) {
+    }
+
+    private final char[] labels;      // edge label leading into each node (root unused)
+    private final int[] childStart;   // first child of each node
+    private final int[] childCount;   // number of children of each node
+    private final int[] topOffsets;   // node n's top entries are topTerms[topOffsets[n] .. topOffsets[n + 1])
+    private final int[] topTerms;     // entry ids, heaviest first
+    private final String[] outputs;
+
+    private SuggestionTrie(char[] labels, int[] childStart, int[] childCount, int[] topOffsets, int[] topTerms, String[] outputs) {
+        this.labels = labels;
+        this.childStart = childStart;
+        this.childCount = childCount;
+        this.topOffsets = topOffsets;
+        this.topTerms = topTerms;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Builds a trie from term weights, each term suggesting itself; ties are broken alphabetically. Terms are
+     * expected to be lowercase.
+     */
+    public static SuggestionTrie build(Map<String, Integer> weights, int topK) {
+        return build(weights.entrySet().stream()
+                .map(e -> new Entry(e.getKey(), e.getKey(), e.getValue()))
+                .toList(), topK);
+    }
+
+    /**
+     * Builds a trie from entries; an input listed more than once for the same output keeps its highest weight,
+     * and ties are broken alphabetically by input, then output. Inputs are expected to be lowercase.
+     */
+    public static SuggestionTrie build(Collection<Entry> entries, int topK) {
+        Map<Entry, Integer> merged = new HashMap<>();
+        for (Entry entry : entries) {
+            merged.merge(new Entry(entry.input(), entry.output(), 0), entry.weight(), Math::max);
+        }
+        Entry[] sorted = merged.entrySet().stream()
+                .map(e -> new Entry(e.getKey().input(), e.getKey().output(), e.getValue()))
+                .sorted(Comparator.comparing(Entry::input).thenComparing(Entry::output))
+                .toArray(Entry[]::new);
+        String[] outputs = new String[sorted.length];
+        int[] termWeights = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            outputs[i] = sorted[i].output();
+            termWeights[i] = sorted[i].weight();
+        }
+        Comparator<Integer> byWeight = Comparator.<Integer>comparingInt(id -> -termWeights[id]).thenComparingInt(id -> id);
+
+        BuildNode root = new BuildNode('\0');
+        for (int id = 0; id < sorted.length; id++) {
+            BuildNode node = root;
+            String input = sorted[id].input();
+            for (int i = 0; i < input.length(); i++) {
+                node = node.children.computeIfAbsent(input.charAt(i), BuildNode::new);
+            }
+            node.termIds.add(id);
+        }
+        root.computeTop(byWeight, outputs, topK);
+
+        // Breadth-first numbering keeps siblings contiguous (and sorted, since children are a TreeMap).
+        List<BuildNode> order = new ArrayList<>();
+        ArrayDeque<BuildNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            BuildNode node = queue.poll();
+            order.add(node);
+            queue.addAll(node.children.values());
+        }
+
+        int n = order.size();
+        char[] labels = new char[n];
+        int[] childStart = new int[n];
+        int[] childCount = new int[n];
+        int[] topOffsets = new int[n + 1];
+        int totalTop = 0;
+        for (BuildNode node : order) {
+            totalTop += node.top.length;
+        }
+        int[] topTerms = new int[totalTop];
+
+        int nextChild = 1;
+        int topPos = 0;
+        for (int i = 0; i < n; i++) {
+            BuildNode node = order.get(i);
+            labels[i] = node.label;
+            childStart[i] = nextChild;
+            childCount[i] = node.children.size();
+            nextChild += node.children.size();
+            topOffsets[i] = topPos;
+            System.arraycopy(node.top, 0, topTerms, topPos, node.top.length);
+            topPos += node.top.length;
+        }
+        topOffsets[n] = topPos;
+        return new SuggestionTrie(labels, childStart, childCount, topOffsets, topTerms, outputs);
+    }
+
+    public int size() {
+        return outputs.length;
+    }
+
+    /**
+     * Copies up to {@code out.length} outputs of the heaviest entries whose input starts with {@code prefix}
+     * (matched case-insensitively) into {@code out}, each output once, and returns how many were written.
+     */
+    public int lookup(CharSequence prefix, String[] out) {
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node >= 0; i++) {
+            node = child(node, Character.toLowerCase(prefix.charAt(i)));
+        }
+        if (node < 0) {
+            return 0;
+        }
+        int count = Math.min(out.length, topOffsets[node + 1] - topOffsets[node]);
+        for (int i = 0; i < count; i++) {
+            out[i] = outputs[topTerms[topOffsets[node] + i]];
+        }
+        return count;
+    }
+
+    public List<String> suggest(CharSequence prefix, int limit) {
+        String[] out = new String[limit];
+        int count = lookup(prefix, out);
+        return Arrays.asList(out).subList(0, count);
+    }
+
+    private int child(int node, char c) {
+        int low = childStart[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (labels[mid] < c) {
+                low = mid + 1;
+            } else if (labels[mid] > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static final class BuildNode {
+        final char label;
+        final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        final List<Integer> termIds = new ArrayList<>(1);
+        int[] top;
+
+        BuildNode(char label) {
+            this.label = label;
+        }
+
+        void computeTop(Comparator<Integer> byWeight, String[] outputs, int topK) {
+            List<Integer> candidates = new ArrayList<>(termIds);
+            for (BuildNode child : children.values()) {
+                child.computeTop(byWeight, outputs, topK);
+                for (int id : child.top) {
+                    candidates.add(id);
+                }
+            }
+            candidates.sort(byWeight);
+            // a child's top entries have distinct outputs, but two children can share one; keep its heaviest
+            Set<String> seen = new HashSet<>();
+            top = candidates.stream()
+                    .filter(id -> seen.add(outputs[id]))
+                    .limit(topK)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.undoschool.course_search.loader;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseBulkIndexerTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>(); // course id -> bulk items seen
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private RestClient restClient;
+
+    @AfterEach
+    void stop() throws IOException {
+        release.countDown();
+        if (restClient != null) {
+            restClient.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void itemsRejectedWith429AreRetriedUntilIndexed() {
+        CourseBulkIndexer indexer = indexer(attempt -> attempt == 1, false); // the first attempt of every item is rejected
+        AtomicInteger acknowledged = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            indexer.add(course("c" + i), acknowledged::incrementAndGet);
+        }
+        IngestStats stats = indexer.finish();
+
+        assertEquals(3, stats.indexed());
+        assertEquals(0, stats.failed());
+        assertEquals(3, stats.retried());
+        assertEquals(3, acknowledged.get());
+        attempts.values().forEach(count -> assertEquals(2, count.get()));
+    }
+
+    @Test
+    void itemsStillRejectedAfterTheLastRetryAreCountedAsFailed() {
+        CourseBulkIndexer indexer = indexer(attempt -> true, false);
+        AtomicInteger acknowledged = new AtomicInteger();
+
+        indexer.add(course("c0"), acknowledged::incrementAndGet);
+        indexer.add(course("c1"), acknowledged::incrementAndGet);
+        IngestStats stats = indexer.finish();
+
+        assertEquals(0, stats.indexed());
+        assertEquals(2, stats.failed());
+        assertEquals(4, stats.retried()); // two retries each
+        assertEquals(0, acknowledged.get());
+        attempts.values().forEach(count -> assertEquals(3, count.get()));
+    }
+
+    @Test
+    void finishWaitsForBulksStillInFlight() throws InterruptedException {
+        CourseBulkIndexer indexer = indexer(attempt -> false, true);
+        indexer.add(course("c0"));
+        indexer.add(course("c1"));
+
+        Thread releaser = new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.start();
+        long start = System.nanoTime();
+        IngestStats stats = indexer.finish();
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(2, stats.indexed());
+        releaser.join();
+    }
+
+    /**
+     * An indexer against a stub {@code _bulk} endpoint that rejects an item with 429 when {@code reject} accepts
+     * its attempt number (1 for the first), and that holds every response until {@link #release} when
+     * {@code hold} is set.
+     */
+    private CourseBulkIndexer indexer(IntPredicate reject, boolean hold) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        server.createContext("/", exchange -> {
+            if (hold) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String[] lines = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            StringJoiner items = new StringJoiner(",");
+            boolean errors = false;
+            for (int i = 0; i < lines.length; i += 2) { // action line, then source line
+                JsonNode action = objectMapper.readTree(lines[i]).get("index");
+                String id = action.get("_id").asText();
+                int attempt = attempts.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+                String item = "\"_index\":\"courses-v1\",\"_id\":\"" + id + "\"";
+                if (reject.test(attempt)) {
+                    errors = true;
+                    items.add("{\"index\":{" + item + ",\"status\":429,"
+                            + "\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"queue full\"}}}");
+                } else {
+                    items.add("{\"index\":{" + item + ",\"status\":201,\"result\":\"created\"}}");
+                }
+            }
+            byte[] bytes = ("{\"took\":1,\"errors\":" + errors + ",\"items\":[" + items + "]}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("X-Elastic-Product", "Elasticsearch"); // checked by the Java client
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool()); // a held bulk must not block the next one
+        server.start();
+        restClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build();
+
+        CourseSearchProperties.Ingest settings = new CourseSearchProperties.Ingest();
+        settings.setMaxRetries(2);
+        settings.setRetryBackoff(Duration.ofMillis(5));
+        settings.setFlushInterval(Duration.ofMillis(20));
+        return new CourseBulkIndexer(new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper())),
+                "courses-v1", settings, new SimpleMeterRegistry());
+    }
+
+    private static CourseDocument course(String id) {
+        CourseDocument course = new CourseDocument();
+        course.setId(id);
+        course.setTitle("Course " + id);
+        return course;
+    }
+}
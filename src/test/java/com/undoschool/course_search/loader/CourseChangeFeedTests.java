@@ -0,0 +1,115 @@
+package com.undoschool.course_search.loader;
+
+import co.elastic.clients.json.JsonpUtils;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseChangeFeedTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<Object> published = new ArrayList<>();
+
+    private CourseChangeFeed memoryFeed() {
+        CourseSearchProperties properties = new CourseSearchProperties();
+        properties.getBackend().setPrimary("memory"); // flushes publish without calling Elasticsearch
+        return new CourseChangeFeed(null, null, published::add, objectMapper, properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void coalescesChangesToOneCoursePerWindow() {
+        CourseChangeFeed feed = memoryFeed();
+
+        feed.submit(List.of(
+                CourseChange.update("c1", 2, Map.of("price", 120)),
+                CourseChange.update("c1", 3, Map.of("nextSessionDate", "2026-11-02T10:00:00")),
+                CourseChange.update("c2", 1, Map.of("title", "Intro to Chess"))));
+        feed.flush();
+
+        assertEquals(1, published.size());
+        List<CourseChange> changes = ((CourseChangeEvent) published.get(0)).changes();
+        assertEquals(2, changes.size());
+        CourseChange c1 = changes.stream().filter(c -> c.getId().equals("c1")).findFirst().orElseThrow();
+        assertEquals(3L, c1.getVersion());
+        assertEquals(Map.of("price", 120.0, "nextSessionDate", "2026-11-02T10:00:00"), c1.getFields());
+        CourseChange c2 = changes.stream().filter(c -> c.getId().equals("c2")).findFirst().orElseThrow();
+        assertEquals(Map.of("title", "Intro to Chess"), c2.getFields());
+        assertTrue(((CourseChangeEvent) published.get(0)).affectsSuggestions());
+    }
+
+    @Test
+    void dropsChangesOlderThanOneAlreadyAccepted() {
+        CourseChangeFeed feed = memoryFeed();
+
+        feed.submit(List.of(CourseChange.deletion("c1", 5)));
+        CourseChangeFeed.Submission late = feed.submit(List.of(
+                CourseChange.update("c1", 4, Map.of("price", 10)),
+                CourseChange.deletion("c1", 5)));
+
+        assertEquals(new CourseChangeFeed.Submission(0, 2), late);
+        feed.flush();
+        assertEquals(List.of(CourseChange.deletion("c1", 5)), ((CourseChangeEvent) published.get(0)).changes());
+    }
+
+    @Test
+    void updateAfterDeleteRecreatesTheCourseFromTheUpdate() {
+        CourseChange recreated = CourseChangeFeed.coalesce(
+                CourseChange.deletion("c1", 1), CourseChange.update("c1", 2, Map.of("price", 50.0)));
+
+        CourseDocument existing = CourseDocument.builder().id("c1").title("Old").price(10.0).build();
+        CourseDocument course = CourseChangeFeed.apply(existing, recreated, objectMapper);
+
+        assertEquals("c1", course.getId());
+        assertEquals(50.0, course.getPrice());
+        assertNull(course.getTitle());
+    }
+
+    @Test
+    void rejectsUnknownOrIllTypedFields() {
+        CourseChangeFeed feed = memoryFeed();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> feed.submit(List.of(CourseChange.update("c1", 1, Map.of("suggest", List.of("x"))))));
+        assertThrows(IllegalArgumentException.class,
+                () -> feed.submit(List.of(CourseChange.update("c1", 1, Map.of("price", "free")))));
+        assertThrows(IllegalArgumentException.class, () -> feed.submit(List.of(new CourseChange("c1", null, true, null))));
+    }
+
+    @Test
+    void appliedChangesKeepTheirFormat() {
+        CourseDocument course = CourseChangeFeed.apply(null,
+                CourseChange.update("c9", 1, Map.of("nextSessionDate", "2026-11-02T10:00:00", "minAge", 8)), objectMapper);
+
+        assertEquals(LocalDateTime.of(2026, 11, 2, 10, 0), course.getNextSessionDate());
+        assertEquals(8, course.getMinAge());
+    }
+
+    @Test
+    void updatesAreVersionedScriptedUpserts() {
+        String action = JsonpUtils.toJsonString(
+                CourseChangeFeed.updateOperation(CourseChange.update("c1", 7, Map.of("price", 99.0))).update().action(),
+                new JacksonJsonpMapper());
+
+        assertTrue(action.contains("\"scripted_upsert\":true"), action);
+        assertTrue(action.contains("\"version\":7"), action);
+        assertTrue(action.contains("\"fields\":{\"price\":99.0}"), action);
+
+        String delete = JsonpUtils.toJsonString(
+                CourseChangeFeed.updateOperation(CourseChange.deletion("c1", 8)).update().action(), new JacksonJsonpMapper());
+        assertTrue(!delete.contains("upsert"), delete);
+    }
+}
@@ -0,0 +1,27 @@
+package com.undoschool.course_search.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseIndexManagerTests {
+
+    @Test
+    void generationNamesAreDistinctAndAscendingWithinOneSecond() {
+        CourseIndexManager manager = new CourseIndexManager(null);
+
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            names.add(manager.nextGenerationName());
+        }
+
+        assertEquals(100, names.stream().distinct().count());
+        assertEquals(names, names.stream().sorted().toList());
+        // a name from before millisecond resolution still sorts before any generation created after it
+        assertTrue("courses-v20250901090000".compareTo(names.get(0)) < 0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.undoschool.course_search.loader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseCompletion;
+import com.undoschool.course_search.document.CourseDocument;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseSuggestTokensTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 1, 9, 0);
+
+    private final CourseSearchProperties.Suggest settings = new CourseSearchProperties().getSuggest();
+
+    @Test
+    void inputsAreTheTitleAndItsWordSuffixesSkippingStopWords() {
+        assertEquals(List.of("Introduction to Python Programming", "Python Programming", "Programming"),
+                CourseSuggestTokens.inputs("Introduction to  Python Programming"));
+        assertEquals(List.of("The Art of Chess", "Art of Chess", "Chess"), CourseSuggestTokens.inputs("The Art of Chess"));
+        assertTrue(CourseSuggestTokens.inputs(" ").isEmpty());
+    }
+
+    @Test
+    void weightGrowsWithPopularityAndASoonerSession() {
+        CourseDocument plain = course(null, null);
+        CourseDocument popular = course(null, 1000);
+        CourseDocument soon = course(NOW.plusDays(1), null);
+        CourseDocument later = course(NOW.plusDays(60), null);
+
+        assertEquals(1, CourseSuggestTokens.weight(plain, settings, NOW));
+        assertEquals(1 + Math.round(10 * Math.log1p(1000)), CourseSuggestTokens.weight(popular, settings, NOW));
+        assertTrue(CourseSuggestTokens.weight(soon, settings, NOW) > CourseSuggestTokens.weight(later, settings, NOW));
+        assertTrue(CourseSuggestTokens.weight(later, settings, NOW) > 1);
+        // past sessions and those beyond the horizon add nothing
+        assertEquals(1, CourseSuggestTokens.weight(course(NOW.minusDays(1), null), settings, NOW));
+        assertEquals(1, CourseSuggestTokens.weight(course(NOW.plusDays(120), null), settings, NOW));
+    }
+
+    @Test
+    void completionCarriesEveryScopeOfTheCourse() {
+        CourseDocument course = course(null, null);
+        course.setCategory("Design");
+        course.setType("ONLINE");
+
+        CourseCompletion completion = CourseSuggestTokens.completion(course, settings, NOW);
+
+        assertEquals(Map.of("scope", List.of("*|*", "Design|*", "*|ONLINE", "Design|ONLINE")), completion.getContexts());
+        assertEquals(List.of("*|*"), CourseSuggestTokens.scopes(null, null));
+    }
+
+    @Test
+    void readsTheInputArrayOfOlderGenerations() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+        CourseDocument legacy = objectMapper.readValue("{\"title\":\"Chess\",\"suggest\":[\"chess\"]}", CourseDocument.class);
+        CourseDocument current = objectMapper.readValue(
+                "{\"title\":\"Chess\",\"suggest\":{\"input\":[\"Chess\"],\"weight\":3}}", CourseDocument.class);
+
+        assertEquals(List.of("chess"), legacy.getSuggest().getInput());
+        assertNull(legacy.getSuggest().getWeight());
+        assertEquals(3, current.getSuggest().getWeight());
+    }
+
+    private static CourseDocument course(LocalDateTime nextSessionDate, Integer popularity) {
+        return CourseDocument.builder()
+                .title("Chess Strategy")
+                .nextSessionDate(nextSessionDate)
+                .popularity(popularity)
+                .build();
+    }
+}
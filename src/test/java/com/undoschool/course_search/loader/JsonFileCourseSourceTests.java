@@ -0,0 +1,105 @@
+package com.undoschool.course_search.loader;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonFileCourseSourceTests {
+
+    private static final String COURSES = """
+            [{"title": "Chess"}, {"title": "Drawing"}, {"title": "Poetry"}, {"title": "Robotics"}, {"title": "Violin"}]""";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void skipsElementsThatAreNotObjectsAndReadsOnToTheEndOfTheArray() throws IOException {
+        JsonFileCourseSource source = source("""
+                [{"title": "Chess"}, null, 42, [1, 2], "x", {"title": "Drawing"}]""");
+
+        List<String> titles = feed(source).stream().map(CourseDocument::getTitle).sorted().toList();
+
+        assertEquals(List.of("Chess", "Drawing"), titles);
+        assertTrue(Files.exists(dir.resolve("checkpoint.json"))); // sealed only after the whole array was read
+    }
+
+    @Test
+    void rejectsATruncatedArray() throws IOException {
+        JsonFileCourseSource source = source("""
+                [{"title": "Chess"}, {"title": "Drawing"}""");
+
+        assertThrows(IOException.class, () -> feed(source));
+        assertFalse(Files.exists(dir.resolve("checkpoint.json")));
+    }
+
+    @Test
+    void resumesAfterTheCheckpointWithExactlyTheRemainingCourses() throws IOException {
+        JsonFileCourseSource source = source(COURSES, 2);
+
+        // an interrupted run: only the first two records were acknowledged, so only their chunk is checkpointed
+        feed(source, course -> List.of("Chess", "Drawing").contains(course.getTitle()));
+        assertEquals("courses-v1", source.resumableIndex());
+
+        List<String> resumed = feed(source).stream().map(CourseDocument::getTitle).sorted().toList();
+
+        assertEquals(List.of("Poetry", "Robotics", "Violin"), resumed);
+    }
+
+    @Test
+    void discardsTheCheckpointOfAFileThatChangedAndRestartsFromTheBeginning() throws IOException {
+        JsonFileCourseSource source = source(COURSES, 2);
+        feed(source, course -> List.of("Chess", "Drawing").contains(course.getTitle()));
+
+        Files.writeString(dir.resolve("courses.json"), COURSES.replace("Chess", "Go"));
+
+        assertThrows(IOException.class, () -> feed(source));
+        assertFalse(Files.exists(dir.resolve("checkpoint.json")));
+        assertEquals(5, feed(source).size());
+    }
+
+    private JsonFileCourseSource source(String json) throws IOException {
+        return source(json, 10_000);
+    }
+
+    private JsonFileCourseSource source(String json, int checkpointInterval) throws IOException {
+        Path file = Files.writeString(dir.resolve("courses.json"), json);
+        CourseSearchProperties properties = new CourseSearchProperties();
+        properties.getLoader().getFile().setLocation(file.toUri().toString());
+        properties.getLoader().getFile().setCheckpointPath(dir.resolve("checkpoint.json").toString());
+        properties.getLoader().getFile().setMappingThreads(1);
+        properties.getLoader().getFile().setCheckpointInterval(checkpointInterval);
+        return new JsonFileCourseSource(properties, new DefaultResourceLoader());
+    }
+
+    private static List<CourseDocument> feed(JsonFileCourseSource source) throws IOException {
+        return feed(source, course -> true);
+    }
+
+    /**
+     * Feeds {@code source} into a sink that acknowledges only the courses {@code acknowledged} accepts.
+     */
+    private static List<CourseDocument> feed(JsonFileCourseSource source, Predicate<CourseDocument> acknowledged) throws IOException {
+        ConcurrentLinkedQueue<CourseDocument> courses = new ConcurrentLinkedQueue<>();
+        source.feed("courses-v1", (course, onIndexed) -> {
+            courses.add(course);
+            if (onIndexed != null && acknowledged.test(course)) {
+                onIndexed.run();
+            }
+        });
+        return List.copyOf(courses);
+    }
+}
@@ -0,0 +1,47 @@
+package com.undoschool.course_search.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), now::get);
+
+    @Test
+    void opensAfterConsecutiveFailuresAndLetsOneProbeThrough() {
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest()); // probe in flight
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void failedProbeReopens() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,60 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CourseFacetsTests {
+
+    @Test
+    void termsFacetsIgnoreTheirOwnSelection() {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        criteria.setCategory("Math");
+        criteria.setType("CLUB");
+
+        Map<String, Aggregation> aggregations = CourseFacets.aggregations(criteria, new CourseSearchProperties.Facets());
+
+        assertEquals(List.of("type"), filteredFields(aggregations.get("category")));
+        assertEquals(List.of("category"), filteredFields(aggregations.get("type")));
+        assertEquals(List.of("category", "type"), filteredFields(aggregations.get("price")));
+        assertEquals(2, CourseFacets.postFilter(criteria).bool().filter().size());
+        assertNull(CourseFacets.postFilter(new CourseSearchCriteria()));
+    }
+
+    @Test
+    void flattensBucketsPerFacet() {
+        Aggregate category = Aggregate.of(a -> a.filter(f -> f.docCount(5).aggregations("values", Aggregate.of(v -> v
+                .sterms(t -> t.sumOtherDocCount(0L).buckets(b -> b.array(List.of(
+                        termsBucket("Math", 3), termsBucket("Art", 2)))))))));
+        Aggregate price = Aggregate.of(a -> a.filter(f -> f.docCount(5).aggregations("values", Aggregate.of(v -> v
+                .histogram(h -> h.buckets(b -> b.array(List.of(
+                        HistogramBucket.of(hb -> hb.key(500).docCount(5))))))))));
+
+        Map<String, Object> facets = CourseFacets.toFacets(Map.of("category", category, "price", price));
+
+        assertEquals(List.of(Map.of("key", "Math", "count", 3L), Map.of("key", "Art", "count", 2L)), facets.get("category"));
+        assertEquals(List.of(Map.of("from", 500.0, "count", 5L)), facets.get("price"));
+    }
+
+    private static StringTermsBucket termsBucket(String key, long count) {
+        return StringTermsBucket.of(b -> b.key(key).docCount(count));
+    }
+
+    private static List<String> filteredFields(Aggregation facet) {
+        return facet.filter().bool().filter().stream()
+                .map(Query::term)
+                .map(term -> term.field())
+                .toList();
+    }
+}
@@ -0,0 +1,83 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.sun.net.httpserver.HttpServer;
+import com.undoschool.course_search.document.CourseDocument;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseIndexScanTests {
+
+    @Test
+    void pagesThroughAPointInTimeOnShardDocAndClosesIt() throws IOException {
+        List<String> requests = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(exchange.getRequestMethod() + " " + path + " " + request);
+            String body;
+            if (exchange.getRequestMethod().equals("DELETE")) {
+                body = "{\"succeeded\":true,\"num_freed\":1}";
+            } else if (path.endsWith("/_pit")) {
+                body = "{\"id\":\"pit-1\"}";
+            } else {
+                // a full page, then two more hits
+                int first = request.contains("search_after") ? CourseIndexScan.PAGE_SIZE : 0;
+                int count = request.contains("search_after") ? 2 : CourseIndexScan.PAGE_SIZE;
+                StringJoiner hits = new StringJoiner(",");
+                for (int i = first; i < first + count; i++) {
+                    hits.add("{\"_index\":\"courses-v1\",\"_id\":\"c" + i + "\",\"_source\":{\"id\":\"c" + i + "\"},\"sort\":[" + i + "]}");
+                }
+                body = "{\"took\":1,\"timed_out\":false,\"pit_id\":\"pit-1\","
+                        + "\"_shards\":{\"total\":2,\"successful\":2,\"skipped\":0,\"failed\":0},"
+                        + "\"hits\":{\"hits\":[" + hits + "]}}";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("X-Elastic-Product", "Elasticsearch"); // checked by the Java client
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        try (RestClient restClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build()) {
+            ElasticsearchClient client = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+            List<CourseDocument> courses = new ArrayList<>();
+
+            long count = CourseIndexScan.scan(client, "courses", List.of("title"), Duration.ofMinutes(1), courses::add);
+
+            assertEquals(CourseIndexScan.PAGE_SIZE + 2, count);
+            assertEquals(count, courses.stream().map(CourseDocument::getId).distinct().count());
+            assertEquals(4, requests.size());
+            assertTrue(requests.get(0).startsWith("POST /courses/_pit"));
+            for (String search : requests.subList(1, 3)) {
+                assertTrue(search.startsWith("POST /_search"));
+                assertTrue(search.contains("\"_shard_doc\""));
+                assertTrue(search.contains("\"pit\":{\"id\":\"pit-1\""));
+                assertFalse(search.contains("\"_doc\""));
+            }
+            assertTrue(requests.get(2).contains("\"search_after\":[" + (CourseIndexScan.PAGE_SIZE - 1) + "]"));
+            assertTrue(requests.get(3).startsWith("DELETE /_pit"));
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CourseSearchServiceTests {
+
+    private final CourseSearchProperties properties = new CourseSearchProperties();
+    private final CourseSearchService service = new CourseSearchService(null, null, null, properties,
+            new SearchMetrics(new SimpleMeterRegistry(), properties));
+
+    @Test
+    void rejectsPagesAndSizesOutsideTheirBounds() {
+        assertThrows(IllegalArgumentException.class, () -> service.normalize(criteria(-1, 10)));
+        assertThrows(IllegalArgumentException.class, () -> service.normalize(criteria(0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> service.normalize(criteria(0, -5)));
+        assertThrows(IllegalArgumentException.class, () -> service.normalize(criteria(0, 101)));
+
+        assertEquals(100, service.normalize(criteria(Integer.MAX_VALUE, 100)).getSize());
+        assertEquals(10, service.normalize(new CourseSearchCriteria()).getSize());
+    }
+
+    private static CourseSearchCriteria criteria(int page, int size) {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        criteria.setPage(page);
+        criteria.setSize(size);
+        return criteria;
+    }
+}
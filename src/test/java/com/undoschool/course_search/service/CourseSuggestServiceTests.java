@@ -0,0 +1,43 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseSuggestServiceTests {
+
+    private final CourseSearchProperties properties = new CourseSearchProperties();
+    private final CourseSuggestService service = new CourseSuggestService(null, properties,
+            new SearchMetrics(new SimpleMeterRegistry(), properties));
+
+    @Test
+    void ranksTitlesByWeightAndNarrowsThemToTheRequestedContexts() throws Exception {
+        service.rebuild(List.of(
+                course("Python Programming", "Programming", "ONLINE", 10, null),
+                course("Programming Puzzles", "Programming", "WORKSHOP", 500, null),
+                course("Poster Design", "Design", "WORKSHOP", 0, LocalDateTime.now().plusDays(2))));
+
+        assertEquals(List.of("Poster Design", "Programming Puzzles", "Python Programming"), service.suggestCourses("p", null, null));
+        assertEquals(List.of("Programming Puzzles", "Python Programming"), service.suggestCourses("prog", null, " "));
+        assertEquals(List.of("Python Programming"), service.suggestCourses("prog", "Programming", "ONLINE"));
+        assertEquals(List.of("Poster Design", "Programming Puzzles"), service.suggestCourses("p", null, "WORKSHOP"));
+        assertTrue(service.suggestCourses("p", "Marketing", null).isEmpty());
+    }
+
+    private static CourseDocument course(String title, String category, String type, int popularity, LocalDateTime nextSessionDate) {
+        return CourseDocument.builder()
+                .title(title)
+                .category(category)
+                .type(type)
+                .popularity(popularity)
+                .nextSessionDate(nextSessionDate)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ElasticsearchBulkheadTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void callsOfOneRequestShareItsDeadline() throws Exception {
+        CourseSearchProperties properties = new CourseSearchProperties();
+        properties.getExecution().setDeadline(Duration.ofMillis(200));
+        ElasticsearchBulkhead bulkhead = new ElasticsearchBulkhead(properties);
+        long deadline = bulkhead.deadlineFromNow();
+        long start = System.nanoTime();
+
+        // the first call uses most of the deadline, so the second is cancelled well before a deadline of its own
+        assertEquals("exact", bulkhead.call(() -> after(150, "exact"), deadline).get(5, TimeUnit.SECONDS));
+        ExecutionException timedOut = assertThrows(ExecutionException.class,
+                () -> bulkhead.call(() -> after(150, "fuzzy"), deadline).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(TimeoutException.class, timedOut.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(290));
+        assertInstanceOf(TimeoutException.class, assertThrows(ExecutionException.class,
+                () -> bulkhead.call(() -> after(0, "late"), deadline).get()).getCause());
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void blockingWorkKeepsItsPermitPastTheDeadlineUntilItReturns() throws Exception {
+        CourseSearchProperties properties = new CourseSearchProperties();
+        properties.getExecution().setMaxConcurrentCalls(1);
+        properties.getExecution().setDeadline(Duration.ofMillis(50));
+        ElasticsearchBulkhead bulkhead = new ElasticsearchBulkhead(properties);
+        CountDownLatch walkMayFinish = new CountDownLatch(1);
+
+        CompletableFuture<String> walk = bulkhead.callBlocking(() -> {
+            walkMayFinish.await();
+            return "done";
+        }, executor);
+
+        ExecutionException timedOut = assertThrows(ExecutionException.class, () -> walk.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, timedOut.getCause());
+        // the walk is still running, so a new call is turned away rather than piling onto Elasticsearch
+        assertEquals(0, bulkhead.availablePermits());
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+                () -> bulkhead.callBlocking(() -> "next", executor).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+
+        walkMayFinish.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.availablePermits() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, bulkhead.availablePermits());
+        assertEquals("next", bulkhead.callBlocking(() -> "next", executor).get(5, TimeUnit.SECONDS));
+        bulkhead.shutdown();
+    }
+
+    private CompletableFuture<String> after(long millis, String value) {
+        return CompletableFuture.supplyAsync(() -> value, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS, executor));
+    }
+}
@@ -0,0 +1,212 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.msearch.MultisearchBody;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.sun.net.httpserver.HttpServer;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ElasticsearchCourseSearchBackendTests {
+
+    private final CourseSearchProperties properties = new CourseSearchProperties();
+    private final RestClient restClient = RestClient.builder(new HttpHost("localhost", 9200)).build(); // never called
+    private final ElasticsearchCourseSearchBackend backend = new ElasticsearchCourseSearchBackend(
+            new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper())),
+            new SearchCursorCodec(properties), properties, new SearchMetrics(new SimpleMeterRegistry(), properties));
+
+    @AfterEach
+    void closeClient() throws IOException {
+        restClient.close();
+    }
+
+    @Test
+    void browseSkipsScoringAndCapsTheTotal() {
+        CourseSearchCriteria browse = new CourseSearchCriteria();
+        browse.setCategory("Programming");
+        SearchRequest request = backend.buildPageRequest(browse.normalized(0, 10));
+
+        assertTrue(request.query().isConstantScore());
+        assertEquals(10_000, request.trackTotalHits().count());
+        assertEquals(properties.getResults().getSourceIncludes(), request.source().filter().includes());
+    }
+
+    @Test
+    void textQueryIsScored() {
+        CourseSearchCriteria text = new CourseSearchCriteria();
+        text.setQ("python");
+        SearchRequest request = backend.buildPageRequest(text.normalized(0, 10));
+
+        assertTrue(request.query().isBool());
+    }
+
+    @Test
+    void textQueryBoostsTitleAndMatchesPartialWordsWithoutFuzziness() {
+        CourseSearchCriteria text = new CourseSearchCriteria();
+        text.setQ("pyth");
+        text.setSort("price:asc");
+        SearchRequest request = backend.buildPageRequest(text.normalized(0, 10));
+
+        String json = request.toString();
+        assertTrue(json.contains("\"title^3.0\""), json);
+        assertTrue(json.contains("\"title.prefix^1.0\""), json);
+        assertFalse(json.contains("fuzziness"), json);
+        assertTrue(request.rescore().isEmpty()); // not sorted by relevance
+
+        SearchRequest fuzzy = backend.buildPageRequest(text.normalized(0, 10), true);
+        assertTrue(fuzzy.toString().contains("\"fuzziness\":\"AUTO\""));
+        assertFalse(fuzzy.toString().contains("title.prefix"));
+    }
+
+    @Test
+    void relevancePagesAreRescoredByTitlePhraseWithoutExplicitSort() {
+        CourseSearchCriteria text = new CourseSearchCriteria();
+        text.setQ("intro python");
+        text.setSort("relevance");
+        SearchRequest request = backend.buildPageRequest(text.normalized(0, 10));
+
+        assertEquals(1, request.rescore().size());
+        assertEquals(50, request.rescore().get(0).windowSize());
+        assertEquals("title", request.rescore().get(0).query().query().matchPhrase().field());
+        assertTrue(request.sort().isEmpty()); // Elasticsearch rejects sort next to rescore
+
+        properties.getRelevance().setRescoreWindow(0);
+        assertTrue(backend.buildPageRequest(text.normalized(0, 10)).rescore().isEmpty());
+    }
+
+    @Test
+    void fuzzyFallbackOnlyForTextQueriesThatMatchNothing() {
+        CourseSearchCriteria text = new CourseSearchCriteria();
+        text.setQ("pyhton");
+        CourseSearchCriteria browse = new CourseSearchCriteria();
+        browse.setCategory("Programming");
+
+        assertTrue(backend.usesFuzzyFallback(text.normalized(0, 10)));
+        assertFalse(backend.usesFuzzyFallback(browse.normalized(0, 10)));
+        properties.getRelevance().setFuzziness("always");
+        assertFalse(backend.usesFuzzyFallback(text.normalized(0, 10)));
+        assertTrue(backend.buildPageRequest(text.normalized(0, 10)).toString().contains("fuzziness"));
+    }
+
+    @Test
+    void lastPossiblePageIsDeepRatherThanOverflowing() {
+        CourseSearchCriteria last = new CourseSearchCriteria();
+        last.setPage(Integer.MAX_VALUE);
+        last.setSize(100);
+
+        assertTrue(backend.requiresCursorWalk(last.normalized(0, 10)));
+    }
+
+    @Test
+    void batchEntriesCarryThePageRequestBodies() {
+        CourseSearchCriteria carousel = new CourseSearchCriteria();
+        carousel.setCategory("Design");
+        carousel.setSize(6);
+        CourseSearchCriteria faceted = new CourseSearchCriteria();
+        faceted.setQ("python");
+        faceted.setSort("relevance");
+        faceted.setFacets(true);
+        MsearchRequest request = backend.buildBatchRequest(List.of(carousel.normalized(0, 10), faceted.normalized(0, 10)));
+
+        assertEquals(2, request.searches().size());
+        assertEquals(List.of("courses"), request.searches().get(0).header().index());
+        MultisearchBody first = request.searches().get(0).body();
+        assertTrue(first.query().isConstantScore());
+        assertEquals(6, first.size());
+        assertEquals(10_000, first.trackTotalHits().count());
+        assertTrue(request.searches().get(1).body().aggregations().containsKey("category"));
+        assertEquals(1, request.searches().get(1).body().rescore().size());
+        assertTrue(request.searches().get(1).body().sort().isEmpty());
+    }
+
+    @Test
+    void pageBeyondTheLastHitIsEmptyButKeepsTheTotal() throws IOException {
+        HttpServer server = stubElasticsearch();
+        try (RestClient stubClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build()) {
+            CourseSearchCriteria criteria = new CourseSearchCriteria();
+            criteria.setCategory("Programming");
+            criteria.setPage(5);
+            criteria.setSize(10);
+
+            Map<String, Object> result = deepPagingBackend(stubClient).search(criteria.normalized(0, 10));
+
+            assertEquals(List.of(), result.get("courses"));
+            assertEquals(3L, result.get("total"));
+            assertFalse(result.containsKey("cursor"));
+            assertFalse(result.containsKey("rescored")); // not a relevance-sorted text query
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void onlyFromSizePagesOfATextQueryAreRescored() throws IOException {
+        HttpServer server = stubElasticsearch();
+        try (RestClient stubClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build()) {
+            ElasticsearchCourseSearchBackend stubbed = deepPagingBackend(stubClient);
+            CourseSearchCriteria criteria = new CourseSearchCriteria();
+            criteria.setQ("python");
+            criteria.setSort("relevance");
+            criteria.setSize(10);
+
+            criteria.setPage(0);
+            assertEquals(true, stubbed.search(criteria.normalized(0, 10)).get("rescored"));
+            criteria.setPage(5); // past max-from-depth: the cursor walk ranks by the plain score
+            assertEquals(false, stubbed.search(criteria.normalized(0, 10)).get("rescored"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static ElasticsearchCourseSearchBackend deepPagingBackend(RestClient client) {
+        CourseSearchProperties deep = new CourseSearchProperties();
+        deep.getPaging().setMaxFromDepth(20);
+        return new ElasticsearchCourseSearchBackend(new ElasticsearchClient(new RestClientTransport(client, new JacksonJsonpMapper())),
+                new SearchCursorCodec(deep), deep, new SearchMetrics(new SimpleMeterRegistry(), deep));
+    }
+
+    /**
+     * Opens and closes points-in-time, and answers every search with the same three hits.
+     */
+    private static HttpServer stubElasticsearch() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String body = path.endsWith("/_pit") && exchange.getRequestMethod().equals("POST") ? "{\"id\":\"pit-1\"}"
+                    : path.endsWith("/_pit") ? "{\"succeeded\":true,\"num_freed\":1}"
+                    : """
+                    {"took":1,"timed_out":false,"pit_id":"pit-1",
+                     "_shards":{"total":1,"successful":1,"skipped":0,"failed":0},
+                     "hits":{"hits":[{"_index":"courses-v1","_id":"a","sort":[1]},
+                                     {"_index":"courses-v1","_id":"b","sort":[2]},
+                                     {"_index":"courses-v1","_id":"c","sort":[3]}]}}""";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("X-Elastic-Product", "Elasticsearch"); // checked by the Java client
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+}
@@ -0,0 +1,188 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryCourseIndexTests {
+
+    private final CourseSearchProperties properties = new CourseSearchProperties();
+
+    private final InMemoryCourseIndex index = InMemoryCourseIndex.build(List.of(
+            course("c1", "Introduction to Python", "Programming", "WORKSHOP", 8, 1200.0, "2025-09-03T10:00:00"),
+            course("c2", "Café Français for Kids", "Language", "ONLINE", 6, 300.0, "2025-09-01T10:00:00"),
+            course("c3", "Advanced Python Patterns", "Programming", "LECTURE", 14, 2400.0, "2025-09-02T10:00:00"),
+            course("c4", "Watercolour Basics", "Design", "WORKSHOP", 10, null, "2025-09-04T10:00:00")));
+
+    @Test
+    void matchesFoldedAndFuzzyTermsAndRanksByBm25() {
+        assertEquals(List.of("c2"), ids(search(criteria(c -> c.setQ("francais")))));
+        // one edit from "python"; the shorter title scores higher
+        assertEquals(List.of("c1", "c3"), ids(search(criteria(c -> {
+            c.setQ("pyhton");
+            c.setSort("relevance");
+        }))));
+        assertEquals(List.of(), ids(search(criteria(c -> c.setQ("!!")))));
+    }
+
+    @Test
+    void matchesPartialTitleWordsAndFallsBackToFuzzy() {
+        // "pyth" starts a title word; nothing is within one edit of it, so only the prefix matches
+        assertEquals(List.of("c1", "c3"), ids(search(criteria(c -> {
+            c.setQ("pyth");
+            c.setSort("relevance");
+        }))));
+        // the exact pass matches "python"; "pyhton" only in the fuzzy pass, which then does not run
+        assertEquals(List.of("c1", "c3"), ids(search(criteria(c -> {
+            c.setQ("pyhton python");
+            c.setSort("relevance");
+        }))));
+
+        CourseSearchProperties exact = new CourseSearchProperties();
+        exact.getRelevance().setFuzziness("off");
+        assertEquals(List.of(), ids(index.search(criteria(c -> c.setQ("pyhton")), null, false, exact)));
+    }
+
+    @Test
+    void titleMatchesOutrankDescriptionMatches() {
+        InMemoryCourseIndex courses = InMemoryCourseIndex.build(List.of(
+                course("d1", "Watercolour Basics", "Design", "WORKSHOP", 10, null, "2025-09-04T10:00:00"),
+                course("d2", "Design Thinking", "Business", "WORKSHOP", 10, null, "2025-09-04T10:00:00")));
+        assertEquals(List.of("d2", "d1"), ids(courses.search(criteria(c -> {
+            c.setQ("design");
+            c.setSort("relevance");
+        }), null, false, properties)));
+    }
+
+    @Test
+    void appliesFiltersAndSortsLikeElasticsearch() {
+        assertEquals(List.of("c3", "c1"), ids(search(criteria(c -> {
+            c.setCategory("Programming");
+            c.setSort("price:desc");
+        }))));
+        assertEquals(List.of("c3", "c4"), ids(search(criteria(c -> c.setMinAge(10)))));
+        // missing price never matches a range and sorts last
+        assertEquals(List.of("c2", "c1", "c3", "c4"), ids(search(criteria(c -> c.setSort("price:asc")))));
+        assertEquals(List.of("c3", "c1"), ids(search(criteria(c -> c.setMinPrice(500.0)))));
+    }
+
+    @Test
+    void continuesFromSearchAfterValues() {
+        CourseSearchCriteria firstPage = criteria(c -> c.setSize(2));
+        InMemoryCourseIndex.Page first = index.search(firstPage, null, false, properties);
+        assertEquals(List.of("c2", "c3"), ids(first));
+        // same sort values Elasticsearch returns: epoch millis of nextSessionDate, then id
+        assertEquals(1756807200000L, first.lastSort().get(0).longValue());
+        assertEquals("c3", first.lastSort().get(1).stringValue());
+
+        InMemoryCourseIndex.Page second = index.search(firstPage, first.lastSort(), false, properties);
+        assertEquals(List.of("c1", "c4"), ids(second));
+        assertEquals(4, second.total());
+    }
+
+    @Test
+    void selectedFacetKeepsSiblingCounts() {
+        InMemoryCourseIndex.Page page = index.search(criteria(c -> {
+            c.setCategory("Programming");
+            c.setFacets(true);
+        }), null, true, properties);
+
+        assertEquals(2, page.total());
+        assertEquals(List.of(Map.of("key", "Programming", "count", 2L), Map.of("key", "Design", "count", 1L),
+                Map.of("key", "Language", "count", 1L)), page.facets().get("category"));
+        assertEquals(List.of(Map.of("key", "LECTURE", "count", 1L), Map.of("key", "WORKSHOP", "count", 1L)), page.facets().get("type"));
+        assertEquals(List.of(Map.of("from", 1000.0, "count", 1L), Map.of("from", 2000.0, "count", 1L)), page.facets().get("price"));
+        assertNull(index.search(criteria(c -> {
+        }), null, false, properties).facets());
+    }
+
+    @Test
+    void capsTotalAndProjectsListFields() {
+        CourseSearchProperties capped = new CourseSearchProperties();
+        capped.getResults().setTrackTotalHitsUpTo(3);
+        capped.getResults().setSourceIncludes(List.of("id", "title"));
+
+        InMemoryCourseIndex.Page page = index.search(criteria(c -> {
+        }), null, false, capped);
+        assertEquals(3, page.total());
+        assertTrue(page.totalIsLowerBound());
+        assertEquals("Café Français for Kids", page.courses().get(0).getTitle());
+        assertNull(page.courses().get(0).getCategory());
+        assertEquals("3+", CourseSearchBackend.result(page.courses(), page.total(), true, null, null).get("totalLabel"));
+    }
+
+    @Test
+    void appliedChangesSearchLikeARebuildAndLeaveTheBaseUntouched() {
+        Map<String, CourseDocument> changes = new LinkedHashMap<>();
+        changes.put("c1", course("c1", "Rust for Beginners", "Design", "ONLINE", 9, 500.0, "2025-09-05T10:00:00"));
+        changes.put("c2", null);
+        changes.put("c5", course("c5", "Python for Kids", "Programming", "WORKSHOP", 7, 150.0, "2025-08-30T10:00:00"));
+        InMemoryCourseIndex updated = index.withChanges(changes);
+        InMemoryCourseIndex rebuilt = InMemoryCourseIndex.build(List.of(changes.get("c1"), index.document("c3"),
+                index.document("c4"), changes.get("c5")));
+
+        assertEquals(4, updated.size());
+        assertNull(updated.document("c2"));
+        for (CourseSearchCriteria criteria : List.of(
+                criteria(c -> c.setQ("python")),
+                criteria(c -> c.setQ("pyth")),
+                criteria(c -> c.setQ("rust")),
+                criteria(c -> c.setQ("francais")),
+                criteria(c -> c.setCategory("Design")),
+                criteria(c -> c.setSort("price:asc")))) {
+            InMemoryCourseIndex.Page expected = rebuilt.search(criteria, null, true, properties);
+            InMemoryCourseIndex.Page actual = updated.search(criteria, null, true, properties);
+            assertEquals(ids(expected), ids(actual));
+            assertEquals(expected.total(), actual.total());
+            assertEquals(expected.facets(), actual.facets());
+        }
+        assertEquals(List.of("c2"), ids(search(criteria(c -> c.setQ("francais")))));
+        assertEquals(List.of(), ids(search(criteria(c -> c.setQ("rust")))));
+
+        // a second delete leaves too many empty slots, so the next index is compacted
+        InMemoryCourseIndex compacted = updated.withChanges(Collections.singletonMap("c4", null));
+        assertEquals(List.of("c5", "c1", "c3"), ids(compacted.search(criteria(c -> c.setSort("price:asc")), null, false, properties)));
+    }
+
+    private InMemoryCourseIndex.Page search(CourseSearchCriteria criteria) {
+        return index.search(criteria, null, false, properties);
+    }
+
+    private static CourseSearchCriteria criteria(Consumer<CourseSearchCriteria> customizer) {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        customizer.accept(criteria);
+        return criteria.normalized(0, 10);
+    }
+
+    private static List<String> ids(InMemoryCourseIndex.Page page) {
+        return page.courses().stream().map(CourseSummary::getId).toList();
+    }
+
+    private static CourseDocument course(String id, String title, String category, String type, int minAge,
+                                         Double price, String nextSession) {
+        return CourseDocument.builder()
+                .id(id)
+                .title(title)
+                .description("A " + category.toLowerCase() + " course")
+                .category(category)
+                .type(type)
+                .minAge(minAge)
+                .maxAge(minAge + 4)
+                .price(price)
+                .nextSessionDate(LocalDateTime.parse(nextSession))
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.undoschool.course_search.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.loader.JsonFileCourseSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class InMemoryCourseSearchBackendTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reloadingFromTheSameFileServesEveryCourseAgain() throws IOException {
+        Path file = Files.writeString(dir.resolve("courses.json"), """
+                [{"id": "c1", "title": "Chess"}, {"id": "c2", "title": "Drawing"}, {"id": "c3", "title": "Python"}]""");
+        CourseSearchProperties properties = new CourseSearchProperties();
+        properties.getBackend().setPrimary("memory");
+        properties.getLoader().setSource("file");
+        properties.getLoader().getFile().setLocation(file.toUri().toString());
+        properties.getLoader().getFile().setCheckpointPath(dir.resolve("checkpoint.json").toString());
+        properties.getLoader().getFile().setMappingThreads(1);
+
+        // a fresh backend and source each time, as after a restart
+        assertEquals(3L, loadAndCount(properties));
+        assertFalse(Files.exists(dir.resolve("checkpoint.json")));
+        assertEquals(3L, loadAndCount(properties));
+    }
+
+    private static Object loadAndCount(CourseSearchProperties properties) throws IOException {
+        SearchMetrics metrics = new SearchMetrics(new SimpleMeterRegistry(), properties);
+        InMemoryCourseSearchBackend backend = new InMemoryCourseSearchBackend(null, new SearchCursorCodec(properties),
+                new SearchResultCache(properties, new SimpleMeterRegistry()), new CourseSuggestService(null, properties, metrics),
+                properties, List.of(new JsonFileCourseSource(properties, new DefaultResourceLoader())), metrics, new ObjectMapper());
+        try {
+            backend.loadFromSource();
+            return backend.facets(new CourseSearchCriteria()).get("total");
+        } finally {
+            backend.shutdown();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.document.CourseDocument;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.dto.CourseSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Offline relevance comparison of the text matching settings over a small judged corpus: every query has one
+ * course a reader would expect first, and a setting is scored by the mean reciprocal rank of those courses.
+ * The corpus mixes whole words, partial words and typos, and descriptions that mention other courses' topics.
+ */
+class RelevanceTests {
+
+    private static final InMemoryCourseIndex INDEX = InMemoryCourseIndex.build(List.of(
+            course("python", "Python for Beginners", "Variables, loops and functions in a friendly first language."),
+            course("webdev", "Build Your First Website", "HTML and CSS, with a little Python and JavaScript for the backend."),
+            course("myth", "Myths and Legends", "Stories of heroes and monsters, retold and acted out."),
+            course("robotics", "Robotics Club", "Design, wire and program small machines."),
+            course("scratch", "Game Design with Scratch", "Make games with blocks; build robots and characters that move."),
+            course("chess", "Chess Strategy", "Openings, tactics and endgames."),
+            course("logic", "Logic Puzzles", "Reasoning games, a bit like chess problems, for curious minds."),
+            course("watercolour", "Watercolour Painting", "Washes, layers and colour mixing."),
+            course("drawing", "Drawing Portraits", "Pencil sketching before you paint, with shading and proportion."),
+            course("astronomy", "Astronomy for Kids", "Planets, stars and the night sky through a telescope."),
+            course("physics", "Fun with Physics", "Forces and motion, from rockets to stars and planets."),
+            course("spanish", "Conversational Spanish", "Everyday phrases, listening and speaking practice."),
+            course("french", "French for Travellers", "Menus, directions and a little Spanish comparison."),
+            course("algebra", "Algebra Foundations", "Equations, expressions and graphs."),
+            course("statistics", "Statistics with Python", "Averages, charts and probability using Python notebooks.")));
+
+    private static final Map<String, String> JUDGEMENTS = Map.ofEntries(
+            Map.entry("python", "python"),
+            Map.entry("pyth", "python"),
+            Map.entry("pyhton", "python"),
+            Map.entry("python statistics", "statistics"),
+            Map.entry("robot", "robotics"),
+            Map.entry("chess", "chess"),
+            Map.entry("paint", "watercolour"),
+            Map.entry("astro", "astronomy"),
+            Map.entry("stars", "astronomy"),
+            Map.entry("spanish", "spanish"),
+            Map.entry("spansh", "spanish"),
+            Map.entry("alg", "algebra"),
+            Map.entry("portrait drawing", "drawing"),
+            Map.entry("myths", "myth"));
+
+    @Test
+    void tunedSettingsRankAtLeastAsWellAsFuzzyEverywhere() {
+        CourseSearchProperties legacy = new CourseSearchProperties();
+        legacy.getRelevance().setFuzziness("always");
+        legacy.getRelevance().setTitleBoost(1);
+        legacy.getRelevance().setPrefixBoost(0);
+        CourseSearchProperties tuned = new CourseSearchProperties();
+
+        double legacyMrr = meanReciprocalRank(legacy);
+        double tunedMrr = meanReciprocalRank(tuned);
+
+        assertTrue(tunedMrr >= legacyMrr, "tuned " + tunedMrr + " < legacy " + legacyMrr);
+        assertTrue(tunedMrr >= 0.9, "tuned MRR " + tunedMrr);
+    }
+
+    @Test
+    void typosStillMatchThroughTheFuzzyFallback() {
+        CourseSearchProperties tuned = new CourseSearchProperties();
+        assertEquals(1.0, reciprocalRank("pyhton", "python", tuned));
+        assertEquals(1.0, reciprocalRank("spansh", "spanish", tuned));
+
+        CourseSearchProperties exact = new CourseSearchProperties();
+        exact.getRelevance().setFuzziness("off");
+        assertEquals(0.0, reciprocalRank("pyhton", "python", exact));
+    }
+
+    private static double meanReciprocalRank(CourseSearchProperties properties) {
+        return JUDGEMENTS.entrySet().stream()
+                .mapToDouble(judgement -> reciprocalRank(judgement.getKey(), judgement.getValue(), properties))
+                .average()
+                .orElse(0);
+    }
+
+    private static double reciprocalRank(String q, String expected, CourseSearchProperties properties) {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        criteria.setQ(q);
+        criteria.setSort("relevance");
+        List<String> ids = INDEX.search(criteria.normalized(0, 10), null, false, properties).courses().stream()
+                .map(CourseSummary::getId)
+                .toList();
+        int rank = ids.indexOf(expected);
+        return rank < 0 ? 0 : 1.0 / (rank + 1);
+    }
+
+    private static CourseDocument course(String id, String title, String description) {
+        return CourseDocument.builder()
+                .id(id)
+                .title(title)
+                .description(description)
+                .category("Science")
+                .type("WORKSHOP")
+                .build();
+    }
+}
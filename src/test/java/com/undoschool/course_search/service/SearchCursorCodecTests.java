@@ -0,0 +1,56 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.service.SearchCursorCodec.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchCursorCodecTests {
+
+    private final SearchCursorCodec codec = new SearchCursorCodec(new CourseSearchProperties());
+
+    @Test
+    void roundTripsSortValuesAndPit() {
+        SearchCursor cursor = new SearchCursor(
+                List.of(FieldValue.of(1756717200000L), FieldValue.of(1200.5), FieldValue.of("CS-101")), "pit-123", "q-42");
+
+        SearchCursor decoded = codec.decode(codec.encode(cursor));
+
+        assertEquals(1756717200000L, decoded.searchAfter().get(0).longValue());
+        assertEquals(1200.5, decoded.searchAfter().get(1).doubleValue());
+        assertEquals("CS-101", decoded.searchAfter().get(2).stringValue());
+        assertEquals("pit-123", decoded.pitId());
+        assertEquals("q-42", decoded.criteria());
+    }
+
+    @Test
+    void rejectsTamperedCursors() {
+        String encoded = codec.encode(new SearchCursor(List.of(FieldValue.of(1L)), null, "q-7"));
+        String forged = new SearchCursorCodec(new CourseSearchProperties())
+                .encode(new SearchCursor(List.of(FieldValue.of(1000000L)), null, "q-7"));
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(forged));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(encoded.substring(1)));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode("not-a-cursor"));
+    }
+
+    @Test
+    void fingerprintsTellApartCriteriaWhoseStringsCollideInHashCode() {
+        CourseSearchCriteria first = new CourseSearchCriteria();
+        first.setCategory("Aa");
+        CourseSearchCriteria second = new CourseSearchCriteria();
+        second.setCategory("BB");
+        assertEquals(first.normalized(0, 10).toString().hashCode(), second.normalized(0, 10).toString().hashCode());
+
+        assertNotEquals(SearchCursorCodec.fingerprint(first.normalized(0, 10)), SearchCursorCodec.fingerprint(second.normalized(0, 10)));
+        first.setPage(3);
+        assertEquals(SearchCursorCodec.fingerprint(first.normalized(0, 10)), SearchCursorCodec.fingerprint(first.normalized(0, 20)));
+    }
+}
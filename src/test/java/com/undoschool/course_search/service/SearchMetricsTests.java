@@ -0,0 +1,46 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void splitsClientLatencyIntoTookAndOverhead() {
+        SearchMetrics metrics = new SearchMetrics(registry, new CourseSearchProperties());
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(30);
+
+        metrics.recordElasticsearch("page", start, 10);
+
+        double client = timer("course.search.es.client").totalTime(TimeUnit.MILLISECONDS);
+        double took = timer("course.search.es.took").totalTime(TimeUnit.MILLISECONDS);
+        double overhead = timer("course.search.es.overhead").totalTime(TimeUnit.MILLISECONDS);
+        assertEquals(10, took, 0.001);
+        assertTrue(client >= 30);
+        assertEquals(client - took, overhead, 0.001);
+    }
+
+    @Test
+    void stagesAreOnlyTimedWhenSampled() {
+        CourseSearchProperties properties = new CourseSearchProperties();
+        properties.getMetrics().setStageSampleRate(0);
+        SearchMetrics metrics = new SearchMetrics(registry, properties);
+
+        metrics.recordBuild(metrics.startStage());
+
+        assertEquals(0, registry.get("course.search.stage").tag("stage", "build").timer().count());
+    }
+
+    private Timer timer(String name) {
+        return registry.get(name).tag("operation", "page").timer();
+    }
+}
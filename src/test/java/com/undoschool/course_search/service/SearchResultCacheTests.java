@@ -0,0 +1,128 @@
+package com.undoschool.course_search.service;
+
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import com.undoschool.course_search.loader.IndexGenerationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class SearchResultCacheTests {
+
+    private final SearchResultCache cache = new SearchResultCache(new CourseSearchProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void blankAndMissingQueryShareAnEntry() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CourseSearchCriteria blank = new CourseSearchCriteria();
+        blank.setQ("  ");
+        CourseSearchCriteria defaults = new CourseSearchCriteria();
+        defaults.setPage(0);
+        defaults.setSize(10);
+        defaults.setSort("UPCOMING");
+
+        cache.get(blank.normalized(0, 10), c -> Map.of("n", loads.incrementAndGet()));
+        cache.get(new CourseSearchCriteria().normalized(0, 10), c -> Map.of("n", loads.incrementAndGet()));
+        cache.get(defaults.normalized(0, 10), c -> Map.of("n", loads.incrementAndGet()));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void concurrentMissesAreCoalesced() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CourseSearchCriteria key = new CourseSearchCriteria().normalized(0, 10);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] calls = new Future<?>[4];
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = pool.submit(() -> cache.get(key, c -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Map.of();
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> call : calls) {
+                call.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void newGenerationInvalidatesEntries() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CourseSearchCriteria key = new CourseSearchCriteria().normalized(0, 10);
+
+        cache.get(key, c -> Map.of("n", loads.incrementAndGet()));
+        cache.onIndexGeneration(new IndexGenerationEvent("courses", "courses-v2", "courses-v1"));
+        cache.get(key, c -> Map.of("n", loads.incrementAndGet()));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void asyncLoadsDoNotKeepDegradedResults() {
+        AtomicInteger loads = new AtomicInteger();
+        CourseSearchCriteria key = new CourseSearchCriteria().normalized(0, 10);
+
+        for (int i = 0; i < 2; i++) {
+            Map<String, Object> result = cache.getAsync(key, c -> {
+                loads.incrementAndGet();
+                return CompletableFuture.completedFuture(Map.of("degraded", true));
+            }).join();
+            assertEquals(true, result.get("degraded"));
+        }
+        cache.getAsync(key, c -> CompletableFuture.completedFuture(Map.of("n", loads.incrementAndGet()))).join();
+        cache.getAsync(key, c -> CompletableFuture.completedFuture(Map.of("n", loads.incrementAndGet()))).join();
+
+        assertEquals(3, loads.get()); // both degraded results loaded again, the healthy one kept
+    }
+
+    @Test
+    void batchLoadsOnlyMissesAndDoesNotKeepFailures() throws Exception {
+        CourseSearchCriteria cached = new CourseSearchCriteria().normalized(0, 10);
+        CourseSearchCriteria failing = new CourseSearchCriteria().normalized(1, 10);
+        CourseSearchCriteria fresh = new CourseSearchCriteria().normalized(2, 10);
+        cache.get(cached, c -> Map.of("page", 0));
+
+        AtomicInteger loads = new AtomicInteger();
+        Map<CourseSearchCriteria, CourseSearchBackend.BatchEntry> entries = cache.getAll(List.of(cached, failing, fresh), missing -> {
+            loads.addAndGet(missing.size());
+            return List.of(CourseSearchBackend.BatchEntry.failed(new IllegalArgumentException("bad")),
+                    new CourseSearchBackend.BatchEntry(Map.of("page", 2), null, 5));
+        });
+
+        assertEquals(2, loads.get());
+        assertEquals(Map.of("page", 0), entries.get(cached).result());
+        assertNotNull(entries.get(failing).error());
+        assertEquals(5, entries.get(fresh).tookMillis());
+
+        cache.getAll(List.of(failing, fresh), missing -> {
+            loads.addAndGet(missing.size());
+            return List.of(new CourseSearchBackend.BatchEntry(Map.of("page", 1), null, 1));
+        });
+        assertEquals(3, loads.get()); // only the failed entry is loaded again
+    }
+}
@@ -0,0 +1,113 @@
+package com.undoschool.course_search.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.undoschool.course_search.config.CourseSearchProperties;
+import com.undoschool.course_search.dto.CourseSearchCriteria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingCourseSearchTests {
+
+    private static final String RESPONSE = """
+            {"took":4,"hits":{"total":{"value":10000,"relation":"gte"},"hits":[
+              {"_source":{"id":"c1","title":"Python","nextSessionDate":"2025-09-01T10:00:00"},"sort":[1756720800000,"c1"]},
+              {"_source":{"id":"c2","title":"Design"},"sort":[1756807200000,"c2"]}]}}
+            """;
+
+    private final CourseSearchProperties properties = new CourseSearchProperties();
+    private final RestClient restClient = RestClient.builder(new HttpHost("localhost", 9200)).build(); // never called
+    private final ElasticsearchClient client = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+    private final SearchCursorCodec codec = new SearchCursorCodec(properties);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StreamingCourseSearch streaming = new StreamingCourseSearch(
+            new CourseSearchService(null, null, null, properties, new SearchMetrics(new SimpleMeterRegistry(), properties)),
+            new ElasticsearchCourseSearchBackend(client, codec, properties, new SearchMetrics(new SimpleMeterRegistry(), properties)),
+            restClient, client, codec,
+            new SearchMetrics(new SimpleMeterRegistry(), properties), objectMapper);
+
+    @AfterEach
+    void closeClient() throws IOException {
+        restClient.close();
+    }
+
+    @Test
+    void copiesSourcesAndIssuesCursorForFullPage() throws IOException {
+        CourseSearchCriteria criteria = criteria(2);
+        JsonNode page = write(criteria);
+
+        assertEquals(List.of("c1", "c2"), List.of(page.at("/courses/0/id").asText(), page.at("/courses/1/id").asText()));
+        assertEquals("2025-09-01T10:00:00", page.at("/courses/0/nextSessionDate").asText());
+        assertEquals(10_000, page.get("total").asLong());
+        assertEquals("10,000+", page.get("totalLabel").asText());
+
+        SearchCursorCodec.SearchCursor cursor = codec.decode(page.get("cursor").asText());
+        assertEquals(1756807200000L, cursor.searchAfter().get(0).longValue());
+        assertEquals("c2", cursor.searchAfter().get(1).stringValue());
+        assertEquals(SearchCursorCodec.fingerprint(criteria), cursor.criteria());
+    }
+
+    @Test
+    void noCursorForLastPage() throws IOException {
+        assertFalse(write(criteria(10)).has("cursor"));
+    }
+
+    @Test
+    void marksPagesOfARelevanceSortedTextQueryAsRescored() throws IOException {
+        CourseSearchCriteria text = new CourseSearchCriteria();
+        text.setQ("python");
+        text.setSort("relevance");
+
+        assertTrue(write(text.normalized(0, 10)).get("rescored").asBoolean());
+        assertFalse(write(criteria(2)).has("rescored"));
+    }
+
+    @Test
+    void normalizedFieldsAreSortedAndDistinct() {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        criteria.setFields(List.of("title", " price", "title", ""));
+        assertEquals(List.of("price", "title"), criteria.normalized(0, 10).getFields());
+        criteria.setFields(List.of(" "));
+        assertNull(criteria.normalized(0, 10).getFields());
+    }
+
+    @Test
+    void rejectsFieldsOutsideTheListView() {
+        for (String field : List.of("suggest", "changeVersion", "*", "tit*")) {
+            CourseSearchCriteria criteria = new CourseSearchCriteria();
+            criteria.setFields(List.of("title", field));
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> streaming.search(criteria));
+            assertTrue(e.getMessage().contains("'" + field + "'"));
+        }
+    }
+
+    private JsonNode write(CourseSearchCriteria criteria) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streaming.writePage(criteria, new ByteArrayInputStream(RESPONSE.getBytes(StandardCharsets.UTF_8)), out, System.nanoTime(), true);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static CourseSearchCriteria criteria(int size) {
+        CourseSearchCriteria criteria = new CourseSearchCriteria();
+        criteria.setSize(size);
+        return criteria.normalized(0, 10);
+    }
+}
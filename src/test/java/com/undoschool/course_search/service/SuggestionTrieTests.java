@@ -0,0 +1,59 @@
+package com.undoschool.course_search.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionTrieTests {
+
+    private final SuggestionTrie trie = SuggestionTrie.build(Map.of(
+            "data", 5,
+            "database", 2,
+            "datum", 2,
+            "design", 7,
+            "development", 1
+    ), 3);
+
+    @Test
+    void returnsHeaviestTermsForPrefix() {
+        assertEquals(List.of("design", "data", "database"), trie.suggest("d", 10));
+        assertEquals(List.of("data", "database", "datum"), trie.suggest("dat", 10));
+    }
+
+    @Test
+    void matchesCaseInsensitively() {
+        assertEquals(List.of("design"), trie.suggest("DES", 10));
+    }
+
+    @Test
+    void limitsAndMisses() {
+        assertEquals(List.of("design"), trie.suggest("d", 1));
+        assertTrue(trie.suggest("x", 10).isEmpty());
+        assertTrue(trie.suggest("datab2", 10).isEmpty());
+    }
+
+    @Test
+    void lookupFillsCallerBuffer() {
+        String[] out = new String[2];
+        assertEquals(2, trie.lookup("da", out));
+        assertEquals("data", out[0]);
+    }
+
+    @Test
+    void suggestsEachOutputOnceThroughAnyOfItsInputs() {
+        SuggestionTrie titles = SuggestionTrie.build(List.of(
+                new SuggestionTrie.Entry("python programming", "Python Programming", 5),
+                new SuggestionTrie.Entry("programming", "Python Programming", 5),
+                new SuggestionTrie.Entry("programming puzzles", "Programming Puzzles", 3),
+                new SuggestionTrie.Entry("puzzles", "Programming Puzzles", 3),
+                new SuggestionTrie.Entry("programming puzzles", "Programming Puzzles", 4)), 2);
+
+        assertEquals(List.of("Python Programming", "Programming Puzzles"), titles.suggest("p", 10));
+        assertEquals(List.of("Python Programming", "Programming Puzzles"), titles.suggest("prog", 10));
+        assertEquals(List.of("Programming Puzzles"), titles.suggest("puz", 10));
+    }
+}